@@ -0,0 +1,221 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package jorgediazest.stagingchecker.executor;
+
+import com.liferay.portal.kernel.log.Log;
+import com.liferay.portal.kernel.log.LogFactoryUtil;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Limits the number of concurrent tasks of a check execution using the
+ * latency of its database queries. The limit grows by one after a full window
+ * of queries below the target latency (additive increase) and it is reduced
+ * by a factor when a query exceeds it (multiplicative decrease). After a
+ * decrease, the limit is not reduced again until a new window of queries has
+ * completed, so the queries already running with the old limit do not
+ * collapse it.
+ *
+ * @author Jorge Díaz
+ */
+public class AdaptiveConcurrencyLimiter {
+
+	public AdaptiveConcurrencyLimiter(
+		int minLimit, int maxLimit, long targetLatency, double backoffRatio) {
+
+		this.minLimit = Math.max(1, minLimit);
+		this.maxLimit = Math.max(this.minLimit, maxLimit);
+		this.targetLatency = targetLatency;
+		this.backoffRatio = backoffRatio;
+
+		limit = this.minLimit;
+	}
+
+	/**
+	 * Waits until the number of running tasks is below the limit. Waiting
+	 * callers are served in arrival order.
+	 */
+	public synchronized void acquire() throws InterruptedException {
+		long ticket = nextTicket++;
+
+		try {
+			while ((ticket != servedTicket) || (inFlight >= limit)) {
+				wait();
+			}
+		}
+		catch (InterruptedException ie) {
+			abandonedTickets.add(ticket);
+
+			skipAbandonedTickets();
+
+			notifyAll();
+
+			throw ie;
+		}
+
+		inFlight++;
+		servedTicket++;
+
+		skipAbandonedTickets();
+
+		notifyAll();
+	}
+
+	public synchronized long getAverageLatency() {
+		if (samples == 0) {
+			return 0;
+		}
+
+		return totalLatency / samples;
+	}
+
+	public synchronized int getDecreases() {
+		return decreases;
+	}
+
+	public synchronized int getInFlight() {
+		return inFlight;
+	}
+
+	public synchronized int getIncreases() {
+		return increases;
+	}
+
+	public synchronized long getLastLatency() {
+		return lastLatency;
+	}
+
+	public synchronized int getLimit() {
+		return limit;
+	}
+
+	public synchronized long getMaxLatency() {
+		return maxLatency;
+	}
+
+	public int getMaxLimit() {
+		return maxLimit;
+	}
+
+	public int getMinLimit() {
+		return minLimit;
+	}
+
+	public synchronized long getSamples() {
+		return samples;
+	}
+
+	public long getTargetLatency() {
+		return targetLatency;
+	}
+
+	/**
+	 * Adds the latency, in milliseconds, of a query executed by a task and
+	 * adjusts the limit.
+	 */
+	public synchronized void onSample(long latency) {
+		samples++;
+		totalLatency += latency;
+		lastLatency = latency;
+
+		if (latency > maxLatency) {
+			maxLatency = latency;
+		}
+
+		windowSamples++;
+
+		if (latency > targetLatency) {
+			if (windowSamples < limit) {
+				return;
+			}
+
+			int newLimit = Math.max(
+				minLimit, (int)Math.floor(limit * backoffRatio));
+
+			windowSamples = 0;
+
+			if (newLimit < limit) {
+				decreases++;
+
+				setLimit(newLimit, latency);
+			}
+
+			return;
+		}
+
+		if ((windowSamples >= limit) && (limit < maxLimit)) {
+			windowSamples = 0;
+
+			increases++;
+
+			setLimit(limit + 1, latency);
+		}
+	}
+
+	public synchronized void release() {
+		inFlight--;
+
+		notifyAll();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "limit=" + limit + ", min=" + minLimit + ", max=" + maxLimit +
+			", target=" + targetLatency + "ms, samples=" + samples +
+				", average=" + getAverageLatency() + "ms, max latency=" +
+					maxLatency + "ms, increases=" + increases +
+						", decreases=" + decreases;
+	}
+
+	protected void setLimit(int newLimit, long latency) {
+		if (_log.isDebugEnabled()) {
+			_log.debug(
+				"Concurrency limit changed from " + limit + " to " +
+					newLimit + " after a query of " + latency + "ms");
+		}
+
+		limit = newLimit;
+
+		notifyAll();
+	}
+
+	protected void skipAbandonedTickets() {
+		while (abandonedTickets.remove(servedTicket)) {
+			servedTicket++;
+		}
+	}
+
+	private static Log _log = LogFactoryUtil.getLog(
+		AdaptiveConcurrencyLimiter.class);
+
+	private final Set<Long> abandonedTickets = new HashSet<Long>();
+	private final double backoffRatio;
+	private int decreases = 0;
+	private int inFlight = 0;
+	private int increases = 0;
+	private long lastLatency = 0;
+	private int limit;
+	private long maxLatency = 0;
+	private final int maxLimit;
+	private final int minLimit;
+	private long nextTicket = 0;
+	private long samples = 0;
+	private long servedTicket = 0;
+	private final long targetLatency;
+	private long totalLatency = 0;
+	private int windowSamples = 0;
+
+}
\ No newline at end of file
@@ -0,0 +1,41 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package jorgediazest.stagingchecker.executor;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Thrown by a check task that stops because its execution was cancelled or
+ * because it ran out of its time budget.
+ *
+ * @author Jorge Díaz
+ */
+public class CheckCancelledException extends CancellationException {
+
+	public CheckCancelledException(String message, boolean timeout) {
+		super(message);
+
+		this.timeout = timeout;
+	}
+
+	public boolean isTimeout() {
+		return timeout;
+	}
+
+	private static final long serialVersionUID = 1L;
+
+	private final boolean timeout;
+
+}
\ No newline at end of file
@@ -0,0 +1,76 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package jorgediazest.stagingchecker.executor;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Completion service backed by a {@link CheckExecutor}. Futures are returned
+ * by {@link #take()} in completion order, including the cancelled ones.
+ *
+ * @author Jorge Díaz
+ */
+public class CheckCompletionService<T> implements CompletionService<T> {
+
+	public CheckCompletionService(CheckExecutor checkExecutor) {
+		this.checkExecutor = checkExecutor;
+	}
+
+	@Override
+	public Future<T> poll() {
+		return completionQueue.poll();
+	}
+
+	@Override
+	public Future<T> poll(long timeout, TimeUnit unit)
+		throws InterruptedException {
+
+		return completionQueue.poll(timeout, unit);
+	}
+
+	@Override
+	public Future<T> submit(Callable<T> callable) {
+		try {
+			return checkExecutor.submit(callable, completionQueue);
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+
+			throw new RejectedExecutionException(ie);
+		}
+	}
+
+	@Override
+	public Future<T> submit(Runnable runnable, T result) {
+		return submit(Executors.callable(runnable, result));
+	}
+
+	@Override
+	public Future<T> take() throws InterruptedException {
+		return completionQueue.take();
+	}
+
+	private final CheckExecutor checkExecutor;
+	private final BlockingQueue<Future<T>> completionQueue =
+		new LinkedBlockingQueue<Future<T>>();
+
+}
\ No newline at end of file
@@ -0,0 +1,346 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package jorgediazest.stagingchecker.executor;
+
+import com.liferay.portal.kernel.log.Log;
+import com.liferay.portal.kernel.log.LogFactoryUtil;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Share of the shared check executor used by one check execution. At most
+ * <code>maxConcurrency</code> tasks of the execution are queued or running at
+ * the same time, and submitting blocks while the execution share or the global
+ * pool capacity is exhausted. Blocked submitters are served in arrival order,
+ * so the companies of an execution that are checked in parallel interleave
+ * their tasks in a round-robin way.
+ *
+ * @author Jorge Díaz
+ */
+public class CheckExecutor {
+
+	public CheckExecutor(
+		ExecutorService executorService, Semaphore globalPermits,
+		int maxConcurrency) {
+
+		this.executorService = executorService;
+		this.globalPermits = globalPermits;
+		this.maxConcurrency = maxConcurrency;
+
+		runPermits = new Semaphore(maxConcurrency, true);
+	}
+
+	/**
+	 * Throws a {@link CheckCancelledException} if the execution of the task
+	 * running in the current thread was cancelled or if the task ran out of
+	 * its time budget. Check tasks call it between their stages, so a
+	 * cancelled task stops as soon as the running query finishes.
+	 */
+	public static void checkCancelled() {
+		CheckFutureTask<?> checkFutureTask = currentTask.get();
+
+		if (checkFutureTask != null) {
+			checkFutureTask.checkCancelled();
+		}
+	}
+
+	/**
+	 * Returns a callable that checks the cancellation state of the task
+	 * running in the current thread, so subtasks submitted to other pools
+	 * stop with their parent task.
+	 */
+	public static <T> Callable<T> inheritCancellation(
+		final Callable<T> callable) {
+
+		final CheckFutureTask<?> checkFutureTask = currentTask.get();
+
+		if (checkFutureTask == null) {
+			return callable;
+		}
+
+		return new Callable<T>() {
+
+			@Override
+			public T call() throws Exception {
+				CheckFutureTask<?> previousTask = currentTask.get();
+
+				currentTask.set(checkFutureTask);
+
+				try {
+					return callable.call();
+				}
+				finally {
+					currentTask.set(previousTask);
+				}
+			}
+
+		};
+	}
+
+	/**
+	 * Adds the latency, in milliseconds, of a query executed by the task
+	 * running in the current thread to the concurrency limiter of its
+	 * execution, if any.
+	 */
+	public static void recordQueryLatency(long latency) {
+		CheckFutureTask<?> checkFutureTask = currentTask.get();
+
+		if (checkFutureTask == null) {
+			return;
+		}
+
+		AdaptiveConcurrencyLimiter limiter =
+			checkFutureTask.getCheckExecutor().getLimiter();
+
+		if (limiter != null) {
+			limiter.onSample(latency);
+		}
+	}
+
+	/**
+	 * Cancels the execution. Queued tasks stop as soon as they start and
+	 * running tasks stop at their next stage, so every task still returns a
+	 * result.
+	 */
+	public void cancel() {
+		cancelled = true;
+	}
+
+	public AdaptiveConcurrencyLimiter getLimiter() {
+		return limiter;
+	}
+
+	public int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	public boolean isShutdown() {
+		return shutdown;
+	}
+
+	/**
+	 * Sets a limiter that adapts the number of concurrent tasks of this
+	 * execution to the latency of its queries. It must be set before
+	 * submitting any task.
+	 */
+	public void setLimiter(AdaptiveConcurrencyLimiter limiter) {
+		this.limiter = limiter;
+	}
+
+	/**
+	 * Sets the time budgets, in milliseconds, of each task and of the whole
+	 * execution. A value of <code>0</code> means no limit.
+	 */
+	public void setTimeouts(long taskTimeout, long runTimeout) {
+		this.taskTimeout = Math.max(0, taskTimeout);
+
+		if (runTimeout > 0) {
+			runDeadline = System.currentTimeMillis() + runTimeout;
+		}
+		else {
+			runDeadline = 0;
+		}
+	}
+
+	/**
+	 * Cancels all tasks of this execution that are still queued or running.
+	 * Queued tasks are not started and running tasks stop at their next
+	 * stage, without interrupting their queries. The shared pool is not
+	 * affected.
+	 */
+	public void shutdown() {
+		shutdown = true;
+
+		cancelled = true;
+
+		for (Future<?> future : pendingFutures) {
+			future.cancel(false);
+		}
+
+		if ((limiter != null) && _log.isInfoEnabled()) {
+			_log.info("Adaptive concurrency: " + limiter);
+		}
+	}
+
+	public <T> Future<T> submit(Callable<T> callable)
+		throws InterruptedException {
+
+		return submit(callable, null);
+	}
+
+	/**
+	 * Submits a task. Once it finishes or it is cancelled, its future is added
+	 * to <code>completionQueue</code>, if not <code>null</code>.
+	 */
+	public <T> Future<T> submit(
+			Callable<T> callable, BlockingQueue<Future<T>> completionQueue)
+		throws InterruptedException {
+
+		if (shutdown) {
+			throw new RejectedExecutionException("Check execution finished");
+		}
+
+		if (limiter != null) {
+			limiter.acquire();
+		}
+		else {
+			runPermits.acquire();
+		}
+
+		try {
+			globalPermits.acquire();
+		}
+		catch (InterruptedException ie) {
+			releaseRunPermit();
+
+			throw ie;
+		}
+
+		CheckFutureTask<T> futureTask = new CheckFutureTask<T>(
+			new CompanyThreadLocalCallable<T>(callable), completionQueue);
+
+		pendingFutures.add(futureTask);
+
+		try {
+			executorService.execute(futureTask);
+		}
+		catch (RejectedExecutionException ree) {
+			futureTask.cancel(false);
+
+			futureTask.releasePermits();
+
+			throw ree;
+		}
+
+		return futureTask;
+	}
+
+	protected void releaseRunPermit() {
+		if (limiter != null) {
+			limiter.release();
+		}
+		else {
+			runPermits.release();
+		}
+	}
+
+	protected class CheckFutureTask<T> extends FutureTask<T> {
+
+		public CheckFutureTask(
+			Callable<T> callable, BlockingQueue<Future<T>> completionQueue) {
+
+			super(callable);
+
+			this.completionQueue = completionQueue;
+		}
+
+		@Override
+		public void run() {
+			long now = System.currentTimeMillis();
+
+			deadline = runDeadline;
+
+			if ((taskTimeout > 0) &&
+				((deadline == 0) || ((now + taskTimeout) < deadline))) {
+
+				deadline = now + taskTimeout;
+			}
+
+			CheckFutureTask<?> previousTask = currentTask.get();
+
+			currentTask.set(this);
+
+			try {
+				super.run();
+			}
+			finally {
+				currentTask.set(previousTask);
+
+				releasePermits();
+			}
+		}
+
+		protected void checkCancelled() {
+			if (cancelled) {
+				throw new CheckCancelledException(
+					"Check execution was cancelled", false);
+			}
+
+			if ((deadline > 0) && (System.currentTimeMillis() > deadline)) {
+				throw new CheckCancelledException(
+					"Check task exceeded its time budget", true);
+			}
+		}
+
+		protected CheckExecutor getCheckExecutor() {
+			return CheckExecutor.this;
+		}
+
+		@Override
+		protected void done() {
+			pendingFutures.remove(this);
+
+			if (completionQueue != null) {
+				completionQueue.add(this);
+			}
+		}
+
+		/**
+		 * Releases the permits of the task. It is called by the worker once
+		 * the task has left the pool, and not when the task is cancelled, so
+		 * a cancelled task keeps its permits while it is still running.
+		 */
+		protected void releasePermits() {
+			globalPermits.release();
+
+			releaseRunPermit();
+		}
+
+		private final BlockingQueue<Future<T>> completionQueue;
+		private volatile long deadline = 0;
+
+	}
+
+	private static Log _log = LogFactoryUtil.getLog(CheckExecutor.class);
+
+	private static ThreadLocal<CheckFutureTask<?>> currentTask =
+		new ThreadLocal<CheckFutureTask<?>>();
+
+	private volatile boolean cancelled = false;
+	private final ExecutorService executorService;
+	private final Semaphore globalPermits;
+	private volatile AdaptiveConcurrencyLimiter limiter = null;
+	private final int maxConcurrency;
+	private final Set<Future<?>> pendingFutures = Collections.newSetFromMap(
+		new ConcurrentHashMap<Future<?>, Boolean>());
+	private volatile long runDeadline = 0;
+	private final Semaphore runPermits;
+	private volatile boolean shutdown = false;
+	private volatile long taskTimeout = 0;
+
+}
\ No newline at end of file
@@ -0,0 +1,357 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package jorgediazest.stagingchecker.executor;
+
+import com.liferay.portal.kernel.log.Log;
+import com.liferay.portal.kernel.log.LogFactoryUtil;
+import com.liferay.portal.kernel.util.NamedThreadFactory;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import jorgediazest.stagingchecker.util.PortletPropsValues;
+
+/**
+ * @author Jorge Díaz
+ */
+public class CheckExecutorUtil {
+
+	public static <T> T getResult(Future<T> future) throws Exception {
+		try {
+			return future.get();
+		}
+		catch (ExecutionException ee) {
+			Throwable cause = ee.getCause();
+
+			if (cause instanceof Exception) {
+				throw (Exception)cause;
+			}
+
+			throw ee;
+		}
+	}
+
+	/**
+	 * Returns a new share of the shared check pool for one check execution.
+	 * The share is limited to <code>maxConcurrency</code> tasks, and it can
+	 * never exceed the size of the shared pool.
+	 *
+	 * <p>
+	 * If virtual threads are enabled and the JVM supports them, each task runs
+	 * in its own virtual thread and the number of concurrent tasks is limited
+	 * by the database connection budget instead of by a number of threads.
+	 * </p>
+	 */
+	public static synchronized CheckExecutor newCheckExecutor(
+		int maxConcurrency) {
+
+		if (PortletPropsValues.EXECUTOR_VIRTUAL_THREADS_ENABLED) {
+			ExecutorService virtualExecutor = getVirtualExecutor();
+
+			if (virtualExecutor != null) {
+				return configure(
+					new CheckExecutor(
+						virtualExecutor, virtualPermits,
+						getVirtualThreadsMaxConnections()));
+			}
+		}
+
+		ThreadPoolExecutor threadPoolExecutor = getCheckExecutor();
+
+		maxConcurrency = Math.min(
+			Math.max(1, maxConcurrency),
+			threadPoolExecutor.getMaximumPoolSize());
+
+		return configure(
+			new CheckExecutor(
+				threadPoolExecutor, checkPermits, maxConcurrency));
+	}
+
+	public static synchronized void shutdown() {
+		if (checkExecutor != null) {
+			if (_log.isInfoEnabled()) {
+				_log.info("Shutting down check executor");
+			}
+
+			shutdownNow(checkExecutor);
+
+			checkExecutor = null;
+			checkPermits = null;
+		}
+
+		if (companyExecutor != null) {
+			if (_log.isInfoEnabled()) {
+				_log.info("Shutting down company executor");
+			}
+
+			shutdownNow(companyExecutor);
+
+			companyExecutor = null;
+		}
+
+		if (fetchExecutor != null) {
+			if (_log.isInfoEnabled()) {
+				_log.info("Shutting down fetch executor");
+			}
+
+			shutdownNow(fetchExecutor);
+
+			fetchExecutor = null;
+		}
+
+		if (taskExecutor != null) {
+			if (_log.isInfoEnabled()) {
+				_log.info("Shutting down background task executor");
+			}
+
+			shutdownNow(taskExecutor);
+
+			taskExecutor = null;
+		}
+
+		if (virtualExecutor != null) {
+			if (_log.isInfoEnabled()) {
+				_log.info("Shutting down virtual thread executor");
+			}
+
+			shutdownNow(virtualExecutor);
+
+			virtualExecutor = null;
+			virtualPermits = null;
+		}
+
+		virtualThreadsUnsupported = false;
+	}
+
+	/**
+	 * Submits the check of a company that runs in parallel with the checks of
+	 * other companies. Company checks only coordinate their group/model
+	 * tasks, which are executed by the shared check pool.
+	 */
+	public static Future<?> submitCompanyCheck(Runnable runnable) {
+		return getCompanyExecutor().submit(runnable);
+	}
+
+	/**
+	 * Submits a fetch subtask to the shared fetch pool. If the pool is
+	 * saturated or it was shut down, the subtask is executed in the caller
+	 * thread, so the caller never waits for a task that will not run.
+	 */
+	public static <T> Future<T> submitFetch(Callable<T> callable) {
+		callable = CheckExecutor.inheritCancellation(callable);
+
+		try {
+			return getFetchExecutor().submit(callable);
+		}
+		catch (RejectedExecutionException ree) {
+			if (_log.isDebugEnabled()) {
+				_log.debug("Fetch pool is busy, running subtask inline");
+			}
+
+			FutureTask<T> futureTask = new FutureTask<T>(callable);
+
+			futureTask.run();
+
+			return futureTask;
+		}
+	}
+
+	/**
+	 * Submits a background check task. Background tasks run in their own
+	 * small pool and only coordinate the check, the group/model tasks are
+	 * still executed by the shared check pool, so a background task never
+	 * waits for a thread it is holding.
+	 */
+	public static Future<?> submitTask(Runnable runnable) {
+		return getTaskExecutor().submit(runnable);
+	}
+
+	protected static CheckExecutor configure(CheckExecutor checkExecutor) {
+		checkExecutor.setTimeouts(
+			PortletPropsValues.CHECK_TASK_TIMEOUT * 1000L,
+			PortletPropsValues.CHECK_RUN_TIMEOUT * 1000L);
+
+		if (PortletPropsValues.EXECUTOR_ADAPTIVE_ENABLED) {
+			checkExecutor.setLimiter(
+				new AdaptiveConcurrencyLimiter(
+					PortletPropsValues.EXECUTOR_ADAPTIVE_MIN_CONCURRENCY,
+					checkExecutor.getMaxConcurrency(),
+					PortletPropsValues.EXECUTOR_ADAPTIVE_TARGET_LATENCY,
+					PortletPropsValues.EXECUTOR_ADAPTIVE_BACKOFF_RATIO));
+		}
+
+		return checkExecutor;
+	}
+
+	protected static synchronized ThreadPoolExecutor getCheckExecutor() {
+		if (checkExecutor != null) {
+			return checkExecutor;
+		}
+
+		int threads = Math.max(1, PortletPropsValues.EXECUTOR_THREADS);
+		int queueSize = Math.max(0, PortletPropsValues.EXECUTOR_QUEUE_SIZE);
+
+		/* The queue is not bounded, checkPermits limits the queued tasks */
+
+		checkExecutor = new ThreadPoolExecutor(
+			threads, threads, 60L, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>(),
+			new NamedThreadFactory(
+				"StagingChecker-Check", Thread.NORM_PRIORITY,
+				CheckExecutorUtil.class.getClassLoader()));
+
+		checkExecutor.allowCoreThreadTimeOut(true);
+
+		checkPermits = new Semaphore(threads + queueSize, true);
+
+		return checkExecutor;
+	}
+
+	protected static synchronized ThreadPoolExecutor getCompanyExecutor() {
+		if (companyExecutor != null) {
+			return companyExecutor;
+		}
+
+		int threads = Math.max(
+			1, PortletPropsValues.COMPANIES_PARALLEL_THREADS);
+
+		companyExecutor = new ThreadPoolExecutor(
+			threads, threads, 60L, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>(),
+			new NamedThreadFactory(
+				"StagingChecker-Company", Thread.NORM_PRIORITY,
+				CheckExecutorUtil.class.getClassLoader()));
+
+		companyExecutor.allowCoreThreadTimeOut(true);
+
+		return companyExecutor;
+	}
+
+	protected static synchronized ThreadPoolExecutor getFetchExecutor() {
+		if (fetchExecutor != null) {
+			return fetchExecutor;
+		}
+
+		int threads = Math.max(1, PortletPropsValues.PARALLEL_FETCH_THREADS);
+
+		fetchExecutor = new ThreadPoolExecutor(
+			threads, threads, 60L, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>(threads),
+			new NamedThreadFactory(
+				"StagingChecker-Fetch", Thread.NORM_PRIORITY,
+				CheckExecutorUtil.class.getClassLoader()));
+
+		fetchExecutor.allowCoreThreadTimeOut(true);
+
+		return fetchExecutor;
+	}
+
+	protected static synchronized ThreadPoolExecutor getTaskExecutor() {
+		if (taskExecutor != null) {
+			return taskExecutor;
+		}
+
+		int threads = Math.max(1, PortletPropsValues.BACKGROUND_TASK_THREADS);
+
+		taskExecutor = new ThreadPoolExecutor(
+			threads, threads, 60L, TimeUnit.SECONDS,
+			new LinkedBlockingQueue<Runnable>(),
+			new NamedThreadFactory(
+				"StagingChecker-Task", Thread.NORM_PRIORITY,
+				CheckExecutorUtil.class.getClassLoader()));
+
+		taskExecutor.allowCoreThreadTimeOut(true);
+
+		return taskExecutor;
+	}
+
+	/**
+	 * Returns an executor that starts a new virtual thread for each task, or
+	 * <code>null</code> if the JVM does not support virtual threads. It is
+	 * created by reflection because the plugin is compiled for Java 8.
+	 */
+	protected static synchronized ExecutorService getVirtualExecutor() {
+		if ((virtualExecutor != null) || virtualThreadsUnsupported) {
+			return virtualExecutor;
+		}
+
+		try {
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+
+			builder = builderClass.getMethod(
+				"name", String.class, long.class).invoke(
+					builder, "StagingChecker-Virtual-", 0L);
+
+			ThreadFactory threadFactory =
+				(ThreadFactory)builderClass.getMethod("factory").invoke(
+					builder);
+
+			virtualExecutor = (ExecutorService)Executors.class.getMethod(
+				"newThreadPerTaskExecutor", ThreadFactory.class).invoke(
+					null, threadFactory);
+
+			virtualPermits = new Semaphore(
+				getVirtualThreadsMaxConnections(), true);
+		}
+		catch (Exception e) {
+			if (_log.isWarnEnabled()) {
+				_log.warn(
+					"Virtual threads are not supported by this JVM, using " +
+						"the shared check pool: " + e);
+			}
+
+			virtualThreadsUnsupported = true;
+		}
+
+		return virtualExecutor;
+	}
+
+	protected static int getVirtualThreadsMaxConnections() {
+		return Math.max(
+			1, PortletPropsValues.EXECUTOR_VIRTUAL_THREADS_MAX_CONNECTIONS);
+	}
+
+	protected static void shutdownNow(ExecutorService executorService) {
+		for (Runnable runnable : executorService.shutdownNow()) {
+			if (runnable instanceof Future) {
+				((Future<?>)runnable).cancel(true);
+			}
+		}
+	}
+
+	private static Log _log = LogFactoryUtil.getLog(CheckExecutorUtil.class);
+
+	private static ThreadPoolExecutor checkExecutor = null;
+	private static Semaphore checkPermits = null;
+	private static ThreadPoolExecutor companyExecutor = null;
+	private static ThreadPoolExecutor fetchExecutor = null;
+	private static ThreadPoolExecutor taskExecutor = null;
+	private static ExecutorService virtualExecutor = null;
+	private static Semaphore virtualPermits = null;
+	private static boolean virtualThreadsUnsupported = false;
+
+}
\ No newline at end of file
@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package jorgediazest.stagingchecker.executor;
+
+import com.liferay.portal.kernel.security.auth.CompanyThreadLocal;
+
+import java.util.concurrent.Callable;
+
+/**
+ * Runs a callable with the company of the thread that created it, restoring
+ * the previous company of the executing thread afterwards.
+ *
+ * @author Jorge Díaz
+ */
+public class CompanyThreadLocalCallable<T> implements Callable<T> {
+
+	public CompanyThreadLocalCallable(Callable<T> callable) {
+		this.callable = callable;
+
+		companyId = CompanyThreadLocal.getCompanyId();
+	}
+
+	@Override
+	public T call() throws Exception {
+		Long previousCompanyId = CompanyThreadLocal.getCompanyId();
+
+		CompanyThreadLocal.setCompanyId(companyId);
+
+		try {
+			return callable.call();
+		}
+		finally {
+			CompanyThreadLocal.setCompanyId(previousCompanyId);
+		}
+	}
+
+	private final Callable<T> callable;
+	private final Long companyId;
+
+}
\ No newline at end of file
@@ -0,0 +1,54 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package jorgediazest.stagingchecker.model;
+
+import java.util.Set;
+import java.util.TreeMap;
+
+import jorgediazest.util.data.Comparison;
+import jorgediazest.util.data.Data;
+import jorgediazest.util.model.Model;
+
+/**
+ * Comparison of a group whose staging and live aggregates match, so its rows
+ * were not read.
+ *
+ * @author Jorge Díaz
+ */
+public class AggregateComparison extends Comparison {
+
+	public AggregateComparison(Model model, int rowCount, String message) {
+		super(model, new TreeMap<String, Set<Data>>());
+
+		this.message = message;
+		this.rowCount = rowCount;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public String getOutputType() {
+		return "in-sync-aggregate";
+	}
+
+	public int getRowCount() {
+		return rowCount;
+	}
+
+	private String message;
+	private int rowCount;
+
+}
\ No newline at end of file
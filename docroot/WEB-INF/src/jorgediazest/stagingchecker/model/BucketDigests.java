@@ -0,0 +1,77 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+package jorgediazest.stagingchecker.model;
+
+import java.util.BitSet;
+
+/**
+ * Digests of the rows of one side of a group, bucketed by the hash of their
+ * key. The digest of a bucket does not depend on the order of its rows, so
+ * the buckets of the staging and live sides can be compared without keeping
+ * or sorting the rows.
+ *
+ * @author Jorge Díaz
+ */
+public class BucketDigests {
+
+	public BucketDigests(int bucketCount) {
+		counts = new int[bucketCount];
+		digests = new long[bucketCount];
+	}
+
+	public void add(DataFingerprint fingerprint) {
+		int bucket = getBucket(fingerprint);
+
+		counts[bucket]++;
+		digests[bucket] += StagingCheckerFingerprintUtil.mix(
+			fingerprint.getHash());
+
+		rowCount++;
+	}
+
+	public int getBucket(DataFingerprint fingerprint) {
+		return StagingCheckerFingerprintUtil.getBucket(
+			fingerprint.getKey(), counts.length);
+	}
+
+	public int getBucketCount() {
+		return counts.length;
+	}
+
+	/**
+	 * Returns the buckets whose rows differ from the ones of the other side.
+	 */
+	public BitSet getMismatchedBuckets(BucketDigests bucketDigests) {
+		BitSet mismatchedBuckets = new BitSet(counts.length);
+
+		for (int i = 0; i < counts.length; i++) {
+			if ((counts[i] != bucketDigests.counts[i]) ||
+				(digests[i] != bucketDigests.digests[i])) {
+
+				mismatchedBuckets.set(i);
+			}
+		}
+
+		return mismatchedBuckets;
+	}
+
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	private int[] counts;
+	private long[] digests;
+	private long rowCount = 0;
+
+}
\ No newline at end of file
@@ -0,0 +1,48 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package jorgediazest.stagingchecker.model;
+
+import jorgediazest.util.data.Comparison;
+import jorgediazest.util.model.Model;
+
+/**
+ * Result of a check task that was cancelled or that ran out of its time
+ * budget before comparing its data.
+ *
+ * @author Jorge Díaz
+ */
+public class CancelledComparison extends Comparison {
+
+	public CancelledComparison(Model model, String message, boolean timeout) {
+		super(model, message);
+
+		this.timeout = timeout;
+	}
+
+	public String getErrorType() {
+		if (timeout) {
+			return "timeout";
+		}
+
+		return "cancelled";
+	}
+
+	public boolean isTimeout() {
+		return timeout;
+	}
+
+	private boolean timeout;
+
+}
\ No newline at end of file
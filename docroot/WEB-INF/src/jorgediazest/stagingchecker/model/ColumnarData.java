@@ -0,0 +1,220 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package jorgediazest.stagingchecker.model;
+
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import jorgediazest.util.data.Data;
+import jorgediazest.util.model.Model;
+import jorgediazest.util.table.TableInfo;
+
+/**
+ * Row of a columnar data store. The attribute map of the row is a view of the
+ * columns of the store, and the attributes set later that do not fit in the
+ * columns are kept in a map of the row. The related models and table info
+ * sets are shared by the rows of the store until a row changes them.
+ *
+ * @author Jorge Díaz
+ */
+public class ColumnarData extends Data {
+
+	public ColumnarData(
+		ColumnarDataStore store, int index, Data data,
+		Set<Model> relatedModels, Set<TableInfo> tableInfos) {
+
+		this.index = index;
+		this.store = store;
+
+		map = new RowMap();
+		model = data.getModel();
+		relatedModelsSet = relatedModels;
+		tableInfoSet = tableInfos;
+	}
+
+	@Override
+	public void addModelTableInfo(Model model) {
+		copySharedSets();
+
+		super.addModelTableInfo(model);
+	}
+
+	@Override
+	public void addTableInfo(Collection<TableInfo> tableInfoCollection) {
+		copySharedSets();
+
+		super.addTableInfo(tableInfoCollection);
+	}
+
+	@Override
+	public void addTableInfo(TableInfo tableInfo) {
+		copySharedSets();
+
+		super.addTableInfo(tableInfo);
+	}
+
+	/**
+	 * Returns a rough estimation of the memory used by the row, counting its
+	 * share of the columns of the store.
+	 */
+	public long estimateSize() {
+		long estimatedSize = 64 + (store.estimateSize() / store.size());
+
+		if (overflowMap != null) {
+			estimatedSize += 64;
+
+			for (Object value : overflowMap.values()) {
+				estimatedSize +=
+					40 + StagingCheckerQueryCache.estimateValueSize(value);
+			}
+		}
+
+		return estimatedSize;
+	}
+
+	protected void copySharedSets() {
+		if (!sharedSets) {
+			return;
+		}
+
+		relatedModelsSet = new LinkedHashSet<Model>(relatedModelsSet);
+		tableInfoSet = new LinkedHashSet<TableInfo>(tableInfoSet);
+
+		sharedSets = false;
+	}
+
+	protected class RowMap extends AbstractMap<String, Object> {
+
+		@Override
+		public boolean containsKey(Object key) {
+			if ((overflowMap != null) && overflowMap.containsKey(key)) {
+				return true;
+			}
+
+			DataColumn column = store.getColumn(key);
+
+			if ((column != null) && column.isPresent(index)) {
+				return true;
+			}
+
+			return false;
+		}
+
+		@Override
+		public Set<Entry<String, Object>> entrySet() {
+			Map<String, Object> entries = new LinkedHashMap<String, Object>();
+
+			for (String attribute : store.getAttributes()) {
+				DataColumn column = store.getColumn(attribute);
+
+				if (column.isPresent(index)) {
+					entries.put(attribute, column.get(index));
+				}
+			}
+
+			if (overflowMap != null) {
+				entries.putAll(overflowMap);
+			}
+
+			return Collections.unmodifiableMap(entries).entrySet();
+		}
+
+		@Override
+		public Object get(Object key) {
+			if ((overflowMap != null) && overflowMap.containsKey(key)) {
+				return overflowMap.get(key);
+			}
+
+			DataColumn column = store.getColumn(key);
+
+			if (column == null) {
+				return null;
+			}
+
+			return column.get(index);
+		}
+
+		@Override
+		public Object put(String key, Object value) {
+			Object oldValue = get(key);
+
+			DataColumn column = store.getColumn(key);
+
+			if ((overflowMap == null) || !overflowMap.containsKey(key)) {
+				if ((column != null) && column.set(index, value)) {
+					return oldValue;
+				}
+			}
+
+			if (column != null) {
+				column.remove(index);
+			}
+
+			if (overflowMap == null) {
+				overflowMap = new LinkedHashMap<String, Object>();
+			}
+
+			overflowMap.put(key, value);
+
+			return oldValue;
+		}
+
+		@Override
+		public Object remove(Object key) {
+			Object oldValue = get(key);
+
+			if (overflowMap != null) {
+				overflowMap.remove(key);
+			}
+
+			DataColumn column = store.getColumn(key);
+
+			if (column != null) {
+				column.remove(index);
+			}
+
+			return oldValue;
+		}
+
+		@Override
+		public int size() {
+			int size = 0;
+
+			for (String attribute : store.getAttributes()) {
+				if (store.getColumn(attribute).isPresent(index)) {
+					size++;
+				}
+			}
+
+			if (overflowMap != null) {
+				size += overflowMap.size();
+			}
+
+			return size;
+		}
+
+	}
+
+	private int index;
+	private Map<String, Object> overflowMap;
+	private boolean sharedSets = true;
+	private ColumnarDataStore store;
+
+}
\ No newline at end of file
@@ -0,0 +1,211 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package jorgediazest.stagingchecker.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import jorgediazest.util.data.Data;
+import jorgediazest.util.model.Model;
+import jorgediazest.util.table.TableInfo;
+
+/**
+ * Columnar storage of the rows of one query. All the rows share the list of
+ * attributes of the store and the values of each attribute are kept in a
+ * typed column, instead of an attribute map for each row. The rows are
+ * returned as views of the columns, so they can be used as any other data.
+ *
+ * @author Jorge Díaz
+ */
+public class ColumnarDataStore {
+
+	public static Map<Long, Data> toColumnar(Map<Long, Data> dataMap) {
+		return toColumnar(dataMap, null);
+	}
+
+	public static Map<Long, Data> toColumnar(
+		Map<Long, Data> dataMap, StagingCheckerValueDictionary dictionary) {
+
+		List<Long> keys = new ArrayList<Long>(dataMap.size());
+		List<Data> dataList = new ArrayList<Data>(dataMap.size());
+
+		for (Entry<Long, Data> entry : dataMap.entrySet()) {
+			keys.add(entry.getKey());
+			dataList.add(entry.getValue());
+		}
+
+		ColumnarDataStore store = new ColumnarDataStore(
+			dataList, dictionary, false);
+
+		Map<Long, Data> columnarDataMap = new LongHashMap<Data>(keys.size());
+
+		for (int i = 0; i < keys.size(); i++) {
+			columnarDataMap.put(keys.get(i), store.getData(i));
+		}
+
+		return columnarDataMap;
+	}
+
+	public static Map<Long, List<Data>> toColumnarList(
+		Map<Long, List<Data>> dataMap) {
+
+		return toColumnarList(dataMap, null);
+	}
+
+	/**
+	 * Returns the related data moved to a columnar data store. The values
+	 * replaced by the dictionary are reported as saved on the query cache.
+	 */
+	public static Map<Long, List<Data>> toColumnarList(
+		Map<Long, List<Data>> dataMap,
+		StagingCheckerValueDictionary dictionary) {
+
+		List<Long> keys = new ArrayList<Long>(dataMap.size());
+		List<Data> dataList = new ArrayList<Data>(dataMap.size());
+
+		for (Entry<Long, List<Data>> entry : dataMap.entrySet()) {
+			for (Data data : entry.getValue()) {
+				keys.add(entry.getKey());
+				dataList.add(data);
+			}
+		}
+
+		ColumnarDataStore store = new ColumnarDataStore(
+			dataList, dictionary, true);
+
+		LongDataListMap columnarDataMap = new LongDataListMap(dataMap.size());
+
+		for (int i = 0; i < keys.size(); i++) {
+			columnarDataMap.add(keys.get(i), store.getData(i));
+		}
+
+		return columnarDataMap;
+	}
+
+	public ColumnarDataStore(Collection<Data> dataCollection) {
+		this(dataCollection, null, false);
+	}
+
+	/**
+	 * @param dictionary dictionary used to share the values of the rows with
+	 *        other stores, <code>null</code> for no dictionary
+	 * @param cacheData whether the rows are kept by the query cache
+	 */
+	public ColumnarDataStore(
+		Collection<Data> dataCollection,
+		StagingCheckerValueDictionary dictionary, boolean cacheData) {
+
+		this.cacheData = cacheData;
+		this.dictionary = dictionary;
+
+		List<Data> dataList = new ArrayList<Data>(dataCollection);
+
+		Set<String> attributes = new LinkedHashSet<String>();
+
+		for (Data data : dataList) {
+			attributes.addAll(data.getMap().keySet());
+		}
+
+		for (String attribute : attributes) {
+			columns.put(
+				attribute, new DataColumn(this, attribute, dataList));
+		}
+
+		Map<Set<Model>, Set<Model>> relatedModelsSets =
+			new HashMap<Set<Model>, Set<Model>>();
+		Map<Set<TableInfo>, Set<TableInfo>> tableInfoSets =
+			new HashMap<Set<TableInfo>, Set<TableInfo>>();
+
+		rows = new Data[dataList.size()];
+
+		for (int i = 0; i < rows.length; i++) {
+			Data data = dataList.get(i);
+
+			rows[i] = new ColumnarData(
+				this, i, data,
+				getSharedSet(relatedModelsSets, data.getRelatedModels()),
+				getSharedSet(tableInfoSets, data.getTableInfoSet()));
+		}
+	}
+
+	/**
+	 * Returns a rough estimation of the memory used by the columns.
+	 */
+	public long estimateSize() {
+		long estimatedSize = 64 + (8L * rows.length);
+
+		for (DataColumn column : columns.values()) {
+			estimatedSize += 64 + column.estimateSize();
+		}
+
+		return estimatedSize;
+	}
+
+	/**
+	 * Returns the canonical instance of the value from the dictionary of the
+	 * store, or the value itself if the store has no dictionary.
+	 */
+	public Object getCanonicalValue(Object value) {
+		if (dictionary == null) {
+			return value;
+		}
+
+		return dictionary.getCanonicalValue(value, cacheData);
+	}
+
+	public Set<String> getAttributes() {
+		return columns.keySet();
+	}
+
+	public DataColumn getColumn(Object attribute) {
+		return columns.get(attribute);
+	}
+
+	public Data getData(int index) {
+		return rows[index];
+	}
+
+	public int size() {
+		return rows.length;
+	}
+
+	protected static <T> Set<T> getSharedSet(
+		Map<Set<T>, Set<T>> sharedSets, Set<T> set) {
+
+		Set<T> sharedSet = sharedSets.get(set);
+
+		if (sharedSet == null) {
+			sharedSet = new LinkedHashSet<T>(set);
+
+			sharedSets.put(sharedSet, sharedSet);
+		}
+
+		return sharedSet;
+	}
+
+	private boolean cacheData;
+	private Map<String, DataColumn> columns =
+		new LinkedHashMap<String, DataColumn>();
+	private StagingCheckerValueDictionary dictionary;
+	private Data[] rows;
+
+}
\ No newline at end of file
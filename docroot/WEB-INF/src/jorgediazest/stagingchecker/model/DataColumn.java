@@ -0,0 +1,326 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package jorgediazest.stagingchecker.model;
+
+import java.sql.Timestamp;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import jorgediazest.util.data.Data;
+
+/**
+ * Values of one attribute for all the rows of a columnar data store. The
+ * values are kept in a primitive array chosen by their type: numbers, dates
+ * as epoch milliseconds, uuids as two longs and strings as ids of a
+ * dictionary of the column. Columns with values of several types keep the
+ * values as objects. The strings and objects are replaced by their canonical
+ * instance if the store has a value dictionary.
+ *
+ * @author Jorge Díaz
+ */
+public class DataColumn {
+
+	public DataColumn(
+		ColumnarDataStore store, String attribute, List<Data> dataList) {
+
+		this.store = store;
+
+		size = dataList.size();
+
+		absent = new BitSet(size);
+		nulls = new BitSet(size);
+
+		type = getType(attribute, dataList);
+
+		if ((type == TYPE_DATE) || (type == TYPE_LONG) ||
+			(type == TYPE_TIMESTAMP) || (type == TYPE_UUID)) {
+
+			longValues = new long[size];
+		}
+
+		if (type == TYPE_UUID) {
+			leastSignificantBits = new long[size];
+		}
+
+		if ((type == TYPE_INTEGER) || (type == TYPE_STRING)) {
+			intValues = new int[size];
+		}
+
+		if (type == TYPE_STRING) {
+			dictionary = new ArrayList<String>();
+			dictionaryIds = new HashMap<String, Integer>();
+		}
+
+		for (int i = 0; i < size; i++) {
+			Map<String, Object> map = dataList.get(i).getMap();
+
+			if (map.containsKey(attribute)) {
+				set(i, map.get(attribute));
+			}
+			else {
+				absent.set(i);
+			}
+		}
+	}
+
+	/**
+	 * Returns a rough estimation of the memory used by the column.
+	 */
+	public long estimateSize() {
+		long estimatedSize = 64 + (size / 4);
+
+		if (longValues != null) {
+			estimatedSize += 16 + (8L * longValues.length);
+		}
+
+		if (leastSignificantBits != null) {
+			estimatedSize += 16 + (8L * leastSignificantBits.length);
+		}
+
+		if (intValues != null) {
+			estimatedSize += 16 + (4L * intValues.length);
+		}
+
+		if (dictionary != null) {
+			estimatedSize += 64 + (56L * dictionary.size());
+
+			for (String value : dictionary) {
+				estimatedSize += StagingCheckerQueryCache.estimateValueSize(
+					value);
+			}
+		}
+
+		if (objectValues != null) {
+			estimatedSize += 16 + (8L * objectValues.length);
+
+			for (Object value : objectValues) {
+				estimatedSize += StagingCheckerQueryCache.estimateValueSize(
+					value);
+			}
+		}
+
+		return estimatedSize;
+	}
+
+	public Object get(int index) {
+		if (absent.get(index) || nulls.get(index)) {
+			return null;
+		}
+
+		switch (type) {
+			case TYPE_DATE:
+				return new Date(longValues[index]);
+
+			case TYPE_INTEGER:
+				return Integer.valueOf(intValues[index]);
+
+			case TYPE_LONG:
+				return Long.valueOf(longValues[index]);
+
+			case TYPE_STRING:
+				return dictionary.get(intValues[index]);
+
+			case TYPE_TIMESTAMP:
+				return new Timestamp(longValues[index]);
+
+			case TYPE_UUID:
+				return new UUID(
+					longValues[index], leastSignificantBits[index]);
+
+			default:
+				return objectValues[index];
+		}
+	}
+
+	public boolean isPresent(int index) {
+		return !absent.get(index);
+	}
+
+	public void remove(int index) {
+		absent.set(index);
+		nulls.clear(index);
+
+		if (objectValues != null) {
+			objectValues[index] = null;
+		}
+	}
+
+	/**
+	 * Sets the value of the row, or returns <code>false</code> if its type
+	 * does not fit in the column.
+	 */
+	public boolean set(int index, Object value) {
+		if (value == null) {
+			absent.clear(index);
+			nulls.set(index);
+
+			if (objectValues != null) {
+				objectValues[index] = null;
+			}
+
+			return true;
+		}
+
+		if ((type != TYPE_OBJECT) && (type != getType(value))) {
+			return false;
+		}
+
+		switch (type) {
+			case TYPE_DATE:
+			case TYPE_TIMESTAMP:
+				longValues[index] = ((Date)value).getTime();
+
+				break;
+
+			case TYPE_INTEGER:
+				intValues[index] = (Integer)value;
+
+				break;
+
+			case TYPE_LONG:
+				longValues[index] = (Long)value;
+
+				break;
+
+			case TYPE_STRING:
+				intValues[index] = getDictionaryId(
+					(String)store.getCanonicalValue(value));
+
+				break;
+
+			case TYPE_UUID:
+				longValues[index] = ((UUID)value).getMostSignificantBits();
+				leastSignificantBits[index] =
+					((UUID)value).getLeastSignificantBits();
+
+				break;
+
+			default:
+				if (objectValues == null) {
+					objectValues = new Object[size];
+				}
+
+				objectValues[index] = store.getCanonicalValue(value);
+		}
+
+		absent.clear(index);
+		nulls.clear(index);
+
+		return true;
+	}
+
+	protected static int getType(Object value) {
+		if (value instanceof Long) {
+			return TYPE_LONG;
+		}
+
+		if (value instanceof Integer) {
+			return TYPE_INTEGER;
+		}
+
+		if (value instanceof String) {
+			return TYPE_STRING;
+		}
+
+		if (value instanceof UUID) {
+			return TYPE_UUID;
+		}
+
+		if (value.getClass() == Date.class) {
+			return TYPE_DATE;
+		}
+
+		if ((value.getClass() == Timestamp.class) &&
+			((((Timestamp)value).getNanos() % 1000000) == 0)) {
+
+			return TYPE_TIMESTAMP;
+		}
+
+		return TYPE_OBJECT;
+	}
+
+	protected static int getType(String attribute, List<Data> dataList) {
+		int type = TYPE_OBJECT;
+
+		boolean found = false;
+
+		for (Data data : dataList) {
+			Object value = data.getMap().get(attribute);
+
+			if (value == null) {
+				continue;
+			}
+
+			int valueType = getType(value);
+
+			if (!found) {
+				found = true;
+
+				type = valueType;
+			}
+			else if (type != valueType) {
+				return TYPE_OBJECT;
+			}
+		}
+
+		return type;
+	}
+
+	protected int getDictionaryId(String value) {
+		Integer id = dictionaryIds.get(value);
+
+		if (id == null) {
+			id = dictionary.size();
+
+			dictionary.add(value);
+			dictionaryIds.put(value, id);
+		}
+
+		return id;
+	}
+
+	private static final int TYPE_DATE = 1;
+
+	private static final int TYPE_INTEGER = 2;
+
+	private static final int TYPE_LONG = 3;
+
+	private static final int TYPE_OBJECT = 0;
+
+	private static final int TYPE_STRING = 4;
+
+	private static final int TYPE_TIMESTAMP = 5;
+
+	private static final int TYPE_UUID = 6;
+
+	private BitSet absent;
+	private List<String> dictionary;
+	private Map<String, Integer> dictionaryIds;
+	private int[] intValues;
+	private long[] leastSignificantBits;
+	private long[] longValues;
+	private BitSet nulls;
+	private Object[] objectValues;
+	private int size;
+	private ColumnarDataStore store;
+	private int type;
+
+}
\ No newline at end of file
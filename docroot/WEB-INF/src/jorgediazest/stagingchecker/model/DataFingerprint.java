@@ -0,0 +1,46 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+package jorgediazest.stagingchecker.model;
+
+/**
+ * Reduced form of a row: its key, its primary key and a 64-bit hash of the
+ * attributes compared by the exact check.
+ *
+ * @author Jorge Díaz
+ */
+public class DataFingerprint {
+
+	public DataFingerprint(String key, long primaryKey, long hash) {
+		this.key = key;
+		this.primaryKey = primaryKey;
+		this.hash = hash;
+	}
+
+	public long getHash() {
+		return hash;
+	}
+
+	public String getKey() {
+		return key;
+	}
+
+	public long getPrimaryKey() {
+		return primaryKey;
+	}
+
+	private long hash;
+	private String key;
+	private long primaryKey;
+
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package jorgediazest.stagingchecker.model;
+
+import java.util.Map;
+
+import jorgediazest.util.data.Data;
+
+/**
+ * Receives the data read by a paginated query, one page at a time.
+ *
+ * @author Jorge Díaz
+ */
+public interface DataPageHandler {
+
+	public void processPage(Map<Long, Data> dataPage) throws Exception;
+
+}
\ No newline at end of file
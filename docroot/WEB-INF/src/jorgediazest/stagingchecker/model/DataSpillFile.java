@@ -0,0 +1,332 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package jorgediazest.stagingchecker.model;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Temporary file with the fingerprints of the rows of one side of a group,
+ * used when the data of the group is too big to be kept in memory. The
+ * fingerprints are written sequentially and then read through memory mapped
+ * buffers. Each record has the hash of the key, the primary key, the hash of
+ * the exact attributes and the key in UTF-8. An index of the records by key
+ * can be built, keeping only an offset for each record in memory. The file is
+ * deleted when it is closed.
+ *
+ * @author Jorge Díaz
+ */
+public class DataSpillFile implements Closeable {
+
+	/**
+	 * @param directory directory of the file, <code>null</code> for the
+	 *        default temporary directory
+	 */
+	public DataSpillFile(File directory) throws IOException {
+		file = File.createTempFile("staging-checker-", ".spill", directory);
+
+		try {
+			randomAccessFile = new RandomAccessFile(file, "rw");
+		}
+		catch (IOException ioe) {
+			file.delete();
+
+			throw ioe;
+		}
+
+		channel = randomAccessFile.getChannel();
+	}
+
+	public void add(DataFingerprint fingerprint) throws IOException {
+		if (buffers != null) {
+			throw new IllegalStateException(
+				"Spill file " + file + " is already mapped");
+		}
+
+		byte[] key = fingerprint.getKey().getBytes(StandardCharsets.UTF_8);
+
+		int recordSize = RECORD_HEADER_SIZE + key.length;
+
+		if ((size - segmentStarts.get(segmentStarts.size() - 1) +
+				recordSize) > MAX_SEGMENT_SIZE) {
+
+			segmentStarts.add(size);
+		}
+
+		if (writeBuffer.remaining() < recordSize) {
+			flush();
+		}
+
+		ByteBuffer recordBuffer = writeBuffer;
+
+		if (recordSize > writeBuffer.capacity()) {
+			recordBuffer = ByteBuffer.allocate(recordSize);
+		}
+
+		recordBuffer.putLong(
+			StagingCheckerFingerprintUtil.getKeyHash(fingerprint.getKey()));
+		recordBuffer.putLong(fingerprint.getPrimaryKey());
+		recordBuffer.putLong(fingerprint.getHash());
+		recordBuffer.putInt(key.length);
+		recordBuffer.put(key);
+
+		if (recordBuffer != writeBuffer) {
+			recordBuffer.flip();
+
+			while (recordBuffer.hasRemaining()) {
+				channel.write(recordBuffer);
+			}
+		}
+
+		size += recordSize;
+
+		count++;
+	}
+
+	/**
+	 * Builds the index of the records by key. If several records have the
+	 * same key, the last one is indexed.
+	 */
+	public void buildIndex() {
+		int capacity = 16;
+
+		while (capacity < (2L * count)) {
+			capacity <<= 1;
+		}
+
+		index = new long[capacity];
+
+		for (long offset = 0; offset < size; offset = getNextOffset(offset)) {
+			long keyHash = getKeyHash(offset);
+
+			int slot = findSlot(getKey(offset), keyHash);
+
+			index[slot] = offset + 1;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		buffers = null;
+		index = null;
+
+		try {
+			channel.close();
+			randomAccessFile.close();
+		}
+		finally {
+			if (!file.delete()) {
+				file.deleteOnExit();
+			}
+		}
+	}
+
+	public int getCount() {
+		return count;
+	}
+
+	public long getHash(long offset) {
+		return getBuffer(offset).getLong(getPosition(offset) + 16);
+	}
+
+	/**
+	 * Returns the primary keys of the records that are still in the index.
+	 */
+	public List<Long> getIndexedPrimaryKeys() {
+		List<Long> primaryKeys = new ArrayList<Long>();
+
+		for (long value : index) {
+			if (value > 0) {
+				primaryKeys.add(getPrimaryKey(value - 1));
+			}
+		}
+
+		return primaryKeys;
+	}
+
+	public String getKey(long offset) {
+		ByteBuffer buffer = getBuffer(offset).duplicate();
+
+		int position = getPosition(offset);
+
+		byte[] key = new byte[buffer.getInt(position + 24)];
+
+		buffer.position(position + RECORD_HEADER_SIZE);
+
+		buffer.get(key);
+
+		return new String(key, StandardCharsets.UTF_8);
+	}
+
+	public long getKeyHash(long offset) {
+		return getBuffer(offset).getLong(getPosition(offset));
+	}
+
+	/**
+	 * Returns the offset of the record after the given one. The records end
+	 * at the size of the file.
+	 */
+	public long getNextOffset(long offset) {
+		return offset + RECORD_HEADER_SIZE +
+			getBuffer(offset).getInt(getPosition(offset) + 24);
+	}
+
+	/**
+	 * Returns the offset of the indexed record with the key, or -1 if there
+	 * is no record with the key in the index.
+	 */
+	public long getOffset(String key) {
+		long value = index[
+			findSlot(key, StagingCheckerFingerprintUtil.getKeyHash(key))];
+
+		if (value <= 0) {
+			return -1;
+		}
+
+		return value - 1;
+	}
+
+	public long getPrimaryKey(long offset) {
+		return getBuffer(offset).getLong(getPosition(offset) + 8);
+	}
+
+	public long getSize() {
+		return size;
+	}
+
+	/**
+	 * Writes the pending records and maps the file to read them.
+	 */
+	public void map() throws IOException {
+		flush();
+
+		buffers = new MappedByteBuffer[segmentStarts.size()];
+		segmentOffsets = new long[segmentStarts.size()];
+
+		for (int i = 0; i < buffers.length; i++) {
+			long start = segmentStarts.get(i);
+			long end = size;
+
+			if ((i + 1) < buffers.length) {
+				end = segmentStarts.get(i + 1);
+			}
+
+			buffers[i] = channel.map(
+				FileChannel.MapMode.READ_ONLY, start, end - start);
+			segmentOffsets[i] = start;
+		}
+	}
+
+	/**
+	 * Removes the record with the key from the index, returning its offset,
+	 * or -1 if there is no record with the key.
+	 */
+	public long removeFromIndex(String key) {
+		int slot = findSlot(key, StagingCheckerFingerprintUtil.getKeyHash(key));
+
+		long value = index[slot];
+
+		if (value <= 0) {
+			return -1;
+		}
+
+		index[slot] = REMOVED;
+
+		return value - 1;
+	}
+
+	/**
+	 * Returns the slot of the index with the record of the key or, if there
+	 * is none, the empty slot where it would be added.
+	 */
+	protected int findSlot(String key, long keyHash) {
+		int mask = index.length - 1;
+
+		int slot = (int)(keyHash ^ (keyHash >>> 32)) & mask;
+
+		while (index[slot] != 0) {
+			long value = index[slot];
+
+			if ((value > 0) && (getKeyHash(value - 1) == keyHash) &&
+				key.equals(getKey(value - 1))) {
+
+				return slot;
+			}
+
+			slot = (slot + 1) & mask;
+		}
+
+		return slot;
+	}
+
+	protected void flush() throws IOException {
+		writeBuffer.flip();
+
+		while (writeBuffer.hasRemaining()) {
+			channel.write(writeBuffer);
+		}
+
+		writeBuffer.clear();
+	}
+
+	protected ByteBuffer getBuffer(long offset) {
+		return buffers[getSegment(offset)];
+	}
+
+	protected int getPosition(long offset) {
+		return (int)(offset - segmentOffsets[getSegment(offset)]);
+	}
+
+	protected int getSegment(long offset) {
+		int segment = Arrays.binarySearch(segmentOffsets, offset);
+
+		if (segment < 0) {
+			segment = -segment - 2;
+		}
+
+		return segment;
+	}
+
+	private static final int MAX_SEGMENT_SIZE = 1 << 30;
+
+	private static final int RECORD_HEADER_SIZE = 28;
+
+	private static final long REMOVED = -1;
+
+	private static final int WRITE_BUFFER_SIZE = 64 * 1024;
+
+	private MappedByteBuffer[] buffers;
+	private FileChannel channel;
+	private int count = 0;
+	private File file;
+	private long[] index;
+	private RandomAccessFile randomAccessFile;
+	private long[] segmentOffsets;
+	private List<Long> segmentStarts = new ArrayList<Long>(Arrays.asList(0L));
+	private long size = 0;
+	private ByteBuffer writeBuffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+
+}
\ No newline at end of file
@@ -0,0 +1,193 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package jorgediazest.stagingchecker.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jorgediazest.util.data.Data;
+
+/**
+ * Map of primitive long keys to lists of data. A key with a single row keeps
+ * the row itself and a key with duplicates keeps an array of rows, so no list
+ * objects are kept for each key. The lists returned are read-only views.
+ *
+ * @author Jorge Díaz
+ */
+public class LongDataListMap extends AbstractMap<Long, List<Data>> {
+
+	public LongDataListMap() {
+		this(0);
+	}
+
+	public LongDataListMap(int expectedSize) {
+		dataMap = new LongHashMap<Object>(expectedSize);
+	}
+
+	public LongDataListMap(Map<Long, List<Data>> map) {
+		this(map.size());
+
+		putAll(map);
+	}
+
+	public void add(long key, Data data) {
+		Object value = dataMap.get(key);
+
+		if (value == null) {
+			dataMap.put(key, data);
+
+			return;
+		}
+
+		Data[] dataArray;
+
+		if (value instanceof Data) {
+			dataArray = new Data[] {(Data)value, data};
+		}
+		else {
+			Data[] oldDataArray = (Data[])value;
+
+			dataArray = Arrays.copyOf(oldDataArray, oldDataArray.length + 1);
+
+			dataArray[oldDataArray.length] = data;
+		}
+
+		dataMap.put(key, dataArray);
+	}
+
+	@Override
+	public void clear() {
+		dataMap.clear();
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		return dataMap.containsKey(key);
+	}
+
+	@Override
+	public Set<Entry<Long, List<Data>>> entrySet() {
+		return new AbstractSet<Entry<Long, List<Data>>>() {
+
+			@Override
+			public Iterator<Entry<Long, List<Data>>> iterator() {
+				final Iterator<Entry<Long, Object>> iterator =
+					dataMap.entrySet().iterator();
+
+				return new Iterator<Entry<Long, List<Data>>>() {
+
+					@Override
+					public boolean hasNext() {
+						return iterator.hasNext();
+					}
+
+					@Override
+					public Entry<Long, List<Data>> next() {
+						Entry<Long, Object> entry = iterator.next();
+
+						return new SimpleImmutableEntry<Long, List<Data>>(
+							entry.getKey(), toList(entry.getValue()));
+					}
+
+					@Override
+					public void remove() {
+						throw new UnsupportedOperationException();
+					}
+
+				};
+			}
+
+			@Override
+			public int size() {
+				return dataMap.size();
+			}
+
+		};
+	}
+
+	/**
+	 * Returns a rough estimation of the memory used by the map, without the
+	 * data of the rows.
+	 */
+	public long estimateSize() {
+		long estimatedSize = 64 + (16L * dataMap.getCapacity());
+
+		for (Object value : dataMap.values()) {
+			if (value instanceof Data[]) {
+				estimatedSize += 16 + (8L * ((Data[])value).length);
+			}
+		}
+
+		return estimatedSize;
+	}
+
+	public List<Data> get(long key) {
+		return toList(dataMap.get(key));
+	}
+
+	@Override
+	public List<Data> get(Object key) {
+		return toList(dataMap.get(key));
+	}
+
+	public List<Data> put(long key, List<Data> value) {
+		Object newValue;
+
+		if (value.size() == 1) {
+			newValue = value.get(0);
+		}
+		else {
+			newValue = value.toArray(new Data[value.size()]);
+		}
+
+		return toList(dataMap.put(key, newValue));
+	}
+
+	@Override
+	public List<Data> put(Long key, List<Data> value) {
+		return put(key.longValue(), value);
+	}
+
+	@Override
+	public List<Data> remove(Object key) {
+		return toList(dataMap.remove(key));
+	}
+
+	@Override
+	public int size() {
+		return dataMap.size();
+	}
+
+	protected static List<Data> toList(Object value) {
+		if (value == null) {
+			return null;
+		}
+
+		if (value instanceof Data) {
+			return Collections.singletonList((Data)value);
+		}
+
+		return Collections.unmodifiableList(Arrays.asList((Data[])value));
+	}
+
+	private LongHashMap<Object> dataMap;
+
+}
\ No newline at end of file
@@ -0,0 +1,348 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package jorgediazest.stagingchecker.model;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Map of primitive long keys that stores the keys and the values in two
+ * arrays using open addressing, so no entry objects or boxed keys are kept
+ * for each row. The boxed keys are only created while iterating the map. The
+ * iterators do not support removing entries.
+ *
+ * @author Jorge Díaz
+ */
+public class LongHashMap<V> extends AbstractMap<Long, V> {
+
+	public LongHashMap() {
+		this(0);
+	}
+
+	public LongHashMap(int expectedSize) {
+		int capacity = MIN_CAPACITY;
+
+		while ((capacity * LOAD_FACTOR) < expectedSize) {
+			capacity <<= 1;
+		}
+
+		keys = new long[capacity];
+		values = new Object[capacity];
+	}
+
+	public LongHashMap(Map<Long, ? extends V> map) {
+		this(map.size());
+
+		putAll(map);
+	}
+
+	@Override
+	public void clear() {
+		Arrays.fill(values, null);
+
+		size = 0;
+
+		modCount++;
+	}
+
+	public boolean containsKey(long key) {
+		if (indexOf(key) < 0) {
+			return false;
+		}
+
+		return true;
+	}
+
+	@Override
+	public boolean containsKey(Object key) {
+		if (!(key instanceof Long)) {
+			return false;
+		}
+
+		return containsKey(((Long)key).longValue());
+	}
+
+	@Override
+	public Set<Entry<Long, V>> entrySet() {
+		return new AbstractSet<Entry<Long, V>>() {
+
+			@Override
+			public Iterator<Entry<Long, V>> iterator() {
+				return new EntryIterator();
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+
+		};
+	}
+
+	public V get(long key) {
+		int index = indexOf(key);
+
+		if (index < 0) {
+			return null;
+		}
+
+		return unmask(values[index]);
+	}
+
+	@Override
+	public V get(Object key) {
+		if (!(key instanceof Long)) {
+			return null;
+		}
+
+		return get(((Long)key).longValue());
+	}
+
+	/**
+	 * Returns the number of slots of the arrays of the map.
+	 */
+	public int getCapacity() {
+		return keys.length;
+	}
+
+	public V put(long key, V value) {
+		int mask = keys.length - 1;
+
+		int index = hash(key) & mask;
+
+		while (values[index] != null) {
+			if (keys[index] == key) {
+				V oldValue = unmask(values[index]);
+
+				values[index] = mask(value);
+
+				return oldValue;
+			}
+
+			index = (index + 1) & mask;
+		}
+
+		keys[index] = key;
+		values[index] = mask(value);
+
+		size++;
+
+		modCount++;
+
+		if (size > (keys.length * LOAD_FACTOR)) {
+			resize(keys.length << 1);
+		}
+
+		return null;
+	}
+
+	@Override
+	public V put(Long key, V value) {
+		return put(key.longValue(), value);
+	}
+
+	/**
+	 * Removes the key shifting back the following keys of its probe sequence,
+	 * so no deleted markers are needed.
+	 */
+	public V remove(long key) {
+		int index = indexOf(key);
+
+		if (index < 0) {
+			return null;
+		}
+
+		V oldValue = unmask(values[index]);
+
+		int mask = keys.length - 1;
+
+		int next = (index + 1) & mask;
+
+		while (values[next] != null) {
+			int slot = hash(keys[next]) & mask;
+
+			if (((next - slot) & mask) >= ((next - index) & mask)) {
+				keys[index] = keys[next];
+				values[index] = values[next];
+
+				index = next;
+			}
+
+			next = (next + 1) & mask;
+		}
+
+		values[index] = null;
+
+		size--;
+
+		modCount++;
+
+		return oldValue;
+	}
+
+	@Override
+	public V remove(Object key) {
+		if (!(key instanceof Long)) {
+			return null;
+		}
+
+		return remove(((Long)key).longValue());
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	protected static int hash(long key) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+
+		return (int)(hash ^ (hash >>> 32));
+	}
+
+	protected int indexOf(long key) {
+		int mask = keys.length - 1;
+
+		int index = hash(key) & mask;
+
+		while (values[index] != null) {
+			if (keys[index] == key) {
+				return index;
+			}
+
+			index = (index + 1) & mask;
+		}
+
+		return -1;
+	}
+
+	protected Object mask(V value) {
+		if (value == null) {
+			return NULL_VALUE;
+		}
+
+		return value;
+	}
+
+	protected void resize(int capacity) {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+
+		keys = new long[capacity];
+		values = new Object[capacity];
+
+		int mask = capacity - 1;
+
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldValues[i] == null) {
+				continue;
+			}
+
+			int index = hash(oldKeys[i]) & mask;
+
+			while (values[index] != null) {
+				index = (index + 1) & mask;
+			}
+
+			keys[index] = oldKeys[i];
+			values[index] = oldValues[i];
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	protected V unmask(Object value) {
+		if (value == NULL_VALUE) {
+			return null;
+		}
+
+		return (V)value;
+	}
+
+	protected class EntryIterator implements Iterator<Entry<Long, V>> {
+
+		@Override
+		public boolean hasNext() {
+			return nextIndex() < values.length;
+		}
+
+		@Override
+		public Entry<Long, V> next() {
+			if (expectedModCount != modCount) {
+				throw new ConcurrentModificationException();
+			}
+
+			index = nextIndex();
+
+			if (index >= values.length) {
+				throw new NoSuchElementException();
+			}
+
+			Entry<Long, V> entry = new SimpleEntry<Long, V>(
+				keys[index], unmask(values[index])) {
+
+				@Override
+				public V setValue(V value) {
+					values[entryIndex] = mask(value);
+
+					return super.setValue(value);
+				}
+
+				private int entryIndex = index;
+
+			};
+
+			index++;
+
+			return entry;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		protected int nextIndex() {
+			int nextIndex = index;
+
+			while ((nextIndex < values.length) && (values[nextIndex] == null)) {
+				nextIndex++;
+			}
+
+			return nextIndex;
+		}
+
+		private int expectedModCount = modCount;
+		private int index = 0;
+
+	}
+
+	private static final float LOAD_FACTOR = 0.6f;
+
+	private static final int MIN_CAPACITY = 16;
+
+	private static final Object NULL_VALUE = new Object();
+
+	private long[] keys;
+	private int modCount = 0;
+	private int size = 0;
+	private Object[] values;
+
+}
\ No newline at end of file
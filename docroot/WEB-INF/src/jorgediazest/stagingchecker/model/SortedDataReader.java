@@ -0,0 +1,170 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+package jorgediazest.stagingchecker.model;
+
+import com.liferay.portal.kernel.dao.orm.Criterion;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import jorgediazest.util.data.Data;
+import jorgediazest.util.model.Model;
+import jorgediazest.util.model.ModelUtil;
+
+/**
+ * Reads the data of a model sorted by its key attribute, one page at a time.
+ * Only the current page and its related model data are kept in memory.
+ *
+ * @author Jorge Díaz
+ */
+public class SortedDataReader implements Comparator<Data> {
+
+	public SortedDataReader(
+		StagingCheckerQueryHelper queryHelper,
+		Map<String, Map<Long, List<Data>>> queryCache, Model model,
+		Criterion criterion, String keyAttribute, int pageSize) {
+
+		this.queryHelper = queryHelper;
+		this.queryCache = queryCache;
+		this.model = model;
+		this.criterion = criterion;
+		this.keyAttribute = keyAttribute;
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * Compares the key of two rows in the order returned by the database:
+	 * numeric keys by value and the rest, like uuids, by their text.
+	 */
+	@Override
+	public int compare(Data data1, Data data2) {
+		Object key1 = data1.get(keyAttribute);
+		Object key2 = data2.get(keyAttribute);
+
+		if ((key1 instanceof Number) && (key2 instanceof Number)) {
+			long value1 = ((Number)key1).longValue();
+			long value2 = ((Number)key2).longValue();
+
+			if (value1 < value2) {
+				return -1;
+			}
+
+			if (value1 > value2) {
+				return 1;
+			}
+
+			return 0;
+		}
+
+		return String.valueOf(key1).compareTo(String.valueOf(key2));
+	}
+
+	public long getCount() {
+		return count;
+	}
+
+	public Data next() throws Exception {
+		Data data = peek();
+
+		if (data != null) {
+			count++;
+			position++;
+		}
+
+		return data;
+	}
+
+	public Data peek() throws Exception {
+		if (position >= page.size()) {
+			readPage();
+		}
+
+		if (position >= page.size()) {
+			return null;
+		}
+
+		return page.get(position);
+	}
+
+	protected void readPage() throws Exception {
+		Data lastData = null;
+
+		if (!page.isEmpty()) {
+			lastData = page.get(page.size() - 1);
+		}
+
+		page = Collections.emptyList();
+		position = 0;
+
+		if (finished) {
+			return;
+		}
+
+		List<?> pageValues = queryHelper.getPageValues(
+			model, criterion, keyAttribute, lastValue, pageSize);
+
+		if (pageValues.size() < pageSize) {
+			finished = true;
+		}
+
+		if (pageValues.isEmpty()) {
+			return;
+		}
+
+		lastValue = pageValues.get(pageValues.size() - 1);
+
+		Criterion pageCriterion = ModelUtil.generateConjunctionCriterion(
+			criterion,
+			model.getProperty(keyAttribute).between(
+				pageValues.get(0), lastValue));
+
+		Map<Long, Data> dataMap = queryHelper.getLiferayData(
+			model, pageCriterion);
+
+		if (!dataMap.isEmpty()) {
+			queryHelper.addRelatedModelData(
+				queryCache, dataMap, model, criterion);
+		}
+
+		List<Data> dataList = new ArrayList<Data>(dataMap.values());
+
+		Collections.sort(dataList, this);
+
+		if ((lastData != null) && !dataList.isEmpty() &&
+			(compare(dataList.get(0), lastData) <= 0)) {
+
+			throw new UnsortedDataException(
+				"Data of " + model.getName() + " is not sorted by " +
+					keyAttribute);
+		}
+
+		page = dataList;
+	}
+
+	private long count = 0;
+	private Criterion criterion = null;
+	private boolean finished = false;
+	private String keyAttribute = null;
+	private Object lastValue = null;
+	private Model model = null;
+	private List<Data> page = Collections.emptyList();
+	private int pageSize = 0;
+	private int position = 0;
+	private Map<String, Map<Long, List<Data>>> queryCache = null;
+	private StagingCheckerQueryHelper queryHelper = null;
+
+}
\ No newline at end of file
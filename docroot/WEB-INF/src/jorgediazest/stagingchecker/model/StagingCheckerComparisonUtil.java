@@ -0,0 +1,201 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package jorgediazest.stagingchecker.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+import jorgediazest.stagingchecker.ExecutionMode;
+import jorgediazest.stagingchecker.executor.CheckCancelledException;
+import jorgediazest.stagingchecker.executor.CheckExecutor;
+import jorgediazest.stagingchecker.util.ConfigurationUtil;
+
+import jorgediazest.util.comparator.DataComparator;
+import jorgediazest.util.comparator.DataModelComparator;
+import jorgediazest.util.data.Comparison;
+import jorgediazest.util.data.ComparisonUtil;
+import jorgediazest.util.data.Data;
+import jorgediazest.util.model.Model;
+
+/**
+ * @author Jorge Díaz
+ */
+public class StagingCheckerComparisonUtil {
+
+	public static Comparison getComparison(
+		Model model, Set<ExecutionMode> executionMode,
+		Collection<Data> stagingDataCollection,
+		Collection<Data> liveDataCollection) {
+
+		boolean showBothExact = executionMode.contains(
+			ExecutionMode.SHOW_BOTH_EXACT);
+		boolean showBothNotExact = executionMode.contains(
+			ExecutionMode.SHOW_BOTH_NOTEXACT);
+		boolean showOnlyStaging = executionMode.contains(
+			ExecutionMode.SHOW_STAGING);
+		boolean showOnlyLive = executionMode.contains(ExecutionMode.SHOW_LIVE);
+
+		Set<Data> stagingData = new HashSet<Data>(stagingDataCollection);
+
+		Set<Data> liveData = new HashSet<Data>(liveDataCollection);
+
+		return ComparisonUtil.getComparison(
+			model, getExactDataComparator(model), stagingData, liveData,
+			showBothExact, showBothNotExact, showOnlyStaging, showOnlyLive);
+	}
+
+	public static Comparison getError(Model model, Throwable t) {
+		if (t instanceof CheckCancelledException) {
+			CheckCancelledException cce = (CheckCancelledException)t;
+
+			return new CancelledComparison(
+				model, cce.getMessage(), cce.isTimeout());
+		}
+
+		return ComparisonUtil.getError(model, t);
+	}
+
+	/**
+	 * Returns the output type used to show the error of the comparison.
+	 */
+	public static String getErrorType(Comparison comparison) {
+		if (comparison instanceof CancelledComparison) {
+			return ((CancelledComparison)comparison).getErrorType();
+		}
+
+		return "error";
+	}
+
+	/**
+	 * Returns the key attributes of the model followed by the attributes
+	 * compared by the exact check.
+	 */
+	public static List<String> getExactAttributes(Model model) {
+		Collection<String> exactAttributes =
+			ConfigurationUtil.getExactAttributesToCheck(model);
+
+		List<String> exactAttributesList = new ArrayList<String>(
+			model.getKeyAttributes());
+
+		exactAttributesList.addAll(exactAttributes);
+
+		return exactAttributesList;
+	}
+
+	public static DataComparator getExactDataComparator(Model model) {
+		return new DataModelComparator(getExactAttributes(model));
+	}
+
+	/**
+	 * Compares the staging and live data merging both readers, which return
+	 * the data sorted by key. Only the data to show is kept in memory.
+	 */
+	public static Comparison getSortMergeComparison(
+			Model model, Set<ExecutionMode> executionMode,
+			SortedDataReader stagingReader, SortedDataReader liveReader)
+		throws Exception {
+
+		boolean showBothExact = executionMode.contains(
+			ExecutionMode.SHOW_BOTH_EXACT);
+		boolean showBothNotExact = executionMode.contains(
+			ExecutionMode.SHOW_BOTH_NOTEXACT);
+		boolean showOnlyStaging = executionMode.contains(
+			ExecutionMode.SHOW_STAGING);
+		boolean showOnlyLive = executionMode.contains(ExecutionMode.SHOW_LIVE);
+
+		Map<String, Set<Data>> dataMap = new TreeMap<String, Set<Data>>();
+
+		if (showBothExact) {
+			dataMap.put("both-exact-left", new TreeSet<Data>());
+			dataMap.put("both-exact-right", new TreeSet<Data>());
+		}
+
+		if (showBothNotExact) {
+			dataMap.put("both-notexact-left", new TreeSet<Data>());
+			dataMap.put("both-notexact-right", new TreeSet<Data>());
+		}
+
+		if (showOnlyStaging) {
+			dataMap.put("only-left", new TreeSet<Data>());
+		}
+
+		if (showOnlyLive) {
+			dataMap.put("only-right", new TreeSet<Data>());
+		}
+
+		DataComparator exactDataComparator = getExactDataComparator(model);
+
+		Data stagingData = stagingReader.peek();
+		Data liveData = liveReader.peek();
+
+		while ((stagingData != null) || (liveData != null)) {
+			CheckExecutor.checkCancelled();
+
+			int compare;
+
+			if (stagingData == null) {
+				compare = 1;
+			}
+			else if (liveData == null) {
+				compare = -1;
+			}
+			else {
+				compare = stagingReader.compare(stagingData, liveData);
+			}
+
+			if (compare < 0) {
+				if (showOnlyStaging) {
+					dataMap.get("only-left").add(stagingData);
+				}
+
+				stagingReader.next();
+			}
+			else if (compare > 0) {
+				if (showOnlyLive) {
+					dataMap.get("only-right").add(liveData);
+				}
+
+				liveReader.next();
+			}
+			else {
+				String type = "both-notexact";
+
+				if (exactDataComparator.equals(stagingData, liveData)) {
+					type = "both-exact";
+				}
+
+				if (dataMap.containsKey(type + "-left")) {
+					dataMap.get(type + "-left").add(stagingData);
+					dataMap.get(type + "-right").add(liveData);
+				}
+
+				stagingReader.next();
+				liveReader.next();
+			}
+
+			stagingData = stagingReader.peek();
+			liveData = liveReader.peek();
+		}
+
+		return new SortMergeComparison(model, dataMap);
+	}
+
+}
\ No newline at end of file
@@ -0,0 +1,185 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package jorgediazest.stagingchecker.model;
+
+import com.liferay.portal.kernel.dao.orm.Criterion;
+import com.liferay.portal.kernel.dao.orm.ProjectionFactoryUtil;
+import com.liferay.portal.kernel.dao.orm.ProjectionList;
+import com.liferay.portal.kernel.log.Log;
+import com.liferay.portal.kernel.log.LogFactoryUtil;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jorgediazest.stagingchecker.util.PortletPropsValues;
+
+import jorgediazest.util.model.Model;
+
+/**
+ * Estimates the cost of checking each group and model, so the most expensive
+ * checks can be submitted first. The cost is the number of rows of the live
+ * and staging groups. It is taken from the previous runs or, if the group was
+ * never checked, from a count query grouped by groupId.
+ *
+ * @author Jorge Díaz
+ */
+public class StagingCheckerCostUtil {
+
+	/**
+	 * Returns the estimated cost of checking the model in each live group.
+	 *
+	 * @param stagingGroupIds staging group id of each live group id
+	 */
+	public static Map<Long, Long> getCosts(
+		Model model, long companyId, Map<Long, Long> stagingGroupIds) {
+
+		Map<Long, Long> costs = new HashMap<Long, Long>();
+
+		List<Long> notCachedGroupIds = new ArrayList<Long>();
+
+		for (Entry<Long, Long> entry : stagingGroupIds.entrySet()) {
+			Long cost = costCache.get(
+				getCacheKey(model, companyId, entry.getKey()));
+
+			if (cost != null) {
+				costs.put(entry.getKey(), cost);
+
+				continue;
+			}
+
+			notCachedGroupIds.add(entry.getKey());
+			notCachedGroupIds.add(entry.getValue());
+		}
+
+		if (notCachedGroupIds.isEmpty() ||
+			!PortletPropsValues.SCHEDULING_COUNT_ENABLED) {
+
+			return costs;
+		}
+
+		Map<Long, Long> rowCounts;
+
+		try {
+			rowCounts = countByGroupId(model, notCachedGroupIds);
+		}
+		catch (Exception e) {
+			if (_log.isWarnEnabled()) {
+				_log.warn(
+					"Unable to count rows of " + model.getName() + ": " + e);
+			}
+
+			return costs;
+		}
+
+		for (Entry<Long, Long> entry : stagingGroupIds.entrySet()) {
+			if (costs.containsKey(entry.getKey())) {
+				continue;
+			}
+
+			costs.put(
+				entry.getKey(),
+				getRowCount(rowCounts, entry.getKey()) +
+					getRowCount(rowCounts, entry.getValue()));
+		}
+
+		return costs;
+	}
+
+	/**
+	 * Stores the number of rows of the live and staging groups read by a
+	 * check, to be used as the cost of that check in the next runs.
+	 */
+	public static void recordCost(
+		Model model, long companyId, long groupId, long rows) {
+
+		costCache.put(getCacheKey(model, companyId, groupId), rows);
+	}
+
+	/**
+	 * Sorts the list by descending cost. Elements without a cost keep their
+	 * relative order after the ones with a cost.
+	 */
+	public static <T> void sortByCost(
+		List<T> list, final Map<T, Long> costMap) {
+
+		Collections.sort(
+			list,
+			new Comparator<T>() {
+
+				@Override
+				public int compare(T o1, T o2) {
+					long cost1 = getRowCount(costMap, o1);
+					long cost2 = getRowCount(costMap, o2);
+
+					return Long.compare(cost2, cost1);
+				}
+
+			});
+	}
+
+	protected static Map<Long, Long> countByGroupId(
+			Model model, List<Long> groupIds)
+		throws Exception {
+
+		Criterion criterion = model.getAttributeCriterion("groupId", groupIds);
+
+		ProjectionList projectionList = ProjectionFactoryUtil.projectionList();
+
+		projectionList.add(ProjectionFactoryUtil.groupProperty("groupId"));
+		projectionList.add(ProjectionFactoryUtil.rowCount());
+
+		List<?> results = model.executeDynamicQuery(criterion, projectionList);
+
+		Map<Long, Long> rowCounts = new HashMap<Long, Long>();
+
+		for (Object result : results) {
+			Object[] row = (Object[])result;
+
+			rowCounts.put(
+				((Number)row[0]).longValue(), ((Number)row[1]).longValue());
+		}
+
+		return rowCounts;
+	}
+
+	protected static String getCacheKey(
+		Model model, long companyId, long groupId) {
+
+		return companyId + "_" + model.getName() + "_" + groupId;
+	}
+
+	protected static <T> long getRowCount(Map<T, Long> rowCounts, T key) {
+		Long rowCount = rowCounts.get(key);
+
+		if (rowCount == null) {
+			return 0;
+		}
+
+		return rowCount;
+	}
+
+	private static Log _log = LogFactoryUtil.getLog(
+		StagingCheckerCostUtil.class);
+
+	private static Map<String, Long> costCache =
+		new ConcurrentHashMap<String, Long>();
+
+}
\ No newline at end of file
@@ -0,0 +1,153 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+package jorgediazest.stagingchecker.model;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import jorgediazest.util.data.Data;
+import jorgediazest.util.data.DataUtil;
+
+/**
+ * Reduces rows to fingerprints, so the exact check can compare two 64-bit
+ * hashes instead of keeping all the attribute values in memory.
+ *
+ * @author Jorge Díaz
+ */
+public class StagingCheckerFingerprintUtil {
+
+	/**
+	 * Returns the bucket of the key, from 0 to <code>bucketCount</code> - 1.
+	 */
+	public static int getBucket(String key, int bucketCount) {
+		long keyHash = getKeyHash(key);
+
+		return (int)((keyHash >>> 1) % bucketCount);
+	}
+
+	public static DataFingerprint getFingerprint(
+		Data data, List<String> keyAttributes, List<String> exactAttributes) {
+
+		long hash = FNV_OFFSET_BASIS;
+
+		for (String attribute : exactAttributes) {
+			hash = hash(hash, normalize(data.get(attribute)));
+			hash = hash(hash, "\u0000");
+		}
+
+		return new DataFingerprint(
+			getKey(data, keyAttributes), data.getPrimaryKey(), hash);
+	}
+
+	public static String getKey(Data data, List<String> keyAttributes) {
+		if (keyAttributes.size() == 1) {
+			return normalize(data.get(keyAttributes.get(0)));
+		}
+
+		StringBuilder sb = new StringBuilder();
+
+		for (String keyAttribute : keyAttributes) {
+			sb.append(normalize(data.get(keyAttribute)));
+			sb.append('\u0000');
+		}
+
+		return sb.toString();
+	}
+
+	/**
+	 * Returns the 64-bit hash of the key.
+	 */
+	public static long getKeyHash(String key) {
+		return mix(hash(FNV_OFFSET_BASIS, key));
+	}
+
+	/**
+	 * Spreads the bits of a hash, so that sums of hashes do not cancel out
+	 * the differences of close values.
+	 */
+	public static long mix(long hash) {
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		hash *= 0xc4ceb9fe1a85ec53L;
+		hash ^= hash >>> 33;
+
+		return hash;
+	}
+
+	/**
+	 * Returns the 64-bit FNV-1a hash of the text, continuing from the given
+	 * hash.
+	 */
+	protected static long hash(long hash, String text) {
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+
+			hash ^= (c & 0xff);
+			hash *= FNV_PRIME;
+			hash ^= (c >>> 8);
+			hash *= FNV_PRIME;
+		}
+
+		return hash;
+	}
+
+	/**
+	 * Returns a text that is the same for two values considered equal by the
+	 * data comparators. The elements of collections and maps are sorted, as
+	 * their iteration order does not change their equality.
+	 */
+	protected static String normalize(Object value) {
+		if (DataUtil.isNull(value)) {
+			return "\u0000null";
+		}
+
+		if (value instanceof Collection) {
+			List<String> values = new ArrayList<String>();
+
+			for (Object element : (Collection<?>)value) {
+				values.add(normalize(element));
+			}
+
+			Collections.sort(values);
+
+			return values.toString();
+		}
+
+		if (value instanceof Map) {
+			List<String> values = new ArrayList<String>();
+
+			for (Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+				values.add(
+					normalize(entry.getKey()) + "=" +
+						normalize(entry.getValue()));
+			}
+
+			Collections.sort(values);
+
+			return values.toString();
+		}
+
+		return DataUtil.castString(value);
+	}
+
+	private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+	private static final long FNV_PRIME = 0x100000001b3L;
+
+}
\ No newline at end of file
@@ -0,0 +1,200 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package jorgediazest.stagingchecker.model;
+
+import com.liferay.portal.kernel.exception.SystemException;
+import com.liferay.portal.kernel.log.Log;
+import com.liferay.portal.kernel.log.LogFactoryUtil;
+import com.liferay.portal.kernel.model.Group;
+import com.liferay.portal.kernel.model.Portlet;
+import com.liferay.portal.kernel.service.GroupLocalServiceUtil;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import jorgediazest.util.model.Model;
+
+/**
+ * Metadata of the groups of a check execution, read once before dispatching
+ * the group/model tasks: the staging group of each live group, the group
+ * names and which models are staged in each group. Groups are stored in
+ * sorted arrays and the staged flags in one bit set per model, so dispatch,
+ * callables and output never fetch the groups again.
+ *
+ * @author Jorge Díaz
+ */
+public class StagingCheckerGroupSnapshot {
+
+	public static StagingCheckerGroupSnapshot build(
+			StagingCheckerModelFactory mf, Collection<Long> groupIds,
+			List<Model> modelList)
+		throws SystemException {
+
+		Map<Long, Group> groupMap = new HashMap<Long, Group>();
+
+		for (long groupId : groupIds) {
+			Group group = GroupLocalServiceUtil.fetchGroup(groupId);
+
+			if ((group == null) || (group.getStagingGroup() == null)) {
+				continue;
+			}
+
+			groupMap.put(groupId, group);
+		}
+
+		long[] sortedGroupIds = new long[groupMap.size()];
+
+		int i = 0;
+
+		for (long groupId : groupMap.keySet()) {
+			sortedGroupIds[i++] = groupId;
+		}
+
+		Arrays.sort(sortedGroupIds);
+
+		long[] stagingGroupIds = new long[sortedGroupIds.length];
+		String[] groupNames = new String[sortedGroupIds.length];
+
+		for (i = 0; i < sortedGroupIds.length; i++) {
+			Group group = groupMap.get(sortedGroupIds[i]);
+
+			stagingGroupIds[i] = group.getStagingGroup().getGroupId();
+			groupNames[i] = group.getName();
+		}
+
+		Map<String, BitSet> stagedFlags = new HashMap<String, BitSet>();
+
+		for (Model model : modelList) {
+			BitSet staged = new BitSet(sortedGroupIds.length);
+
+			stagedFlags.put(model.getClassName(), staged);
+
+			Set<Portlet> portlets = mf.getPortletSet(model.getClassName());
+
+			if (portlets.isEmpty()) {
+				continue;
+			}
+
+			String portletId = portlets.iterator().next().getPortletId();
+
+			for (i = 0; i < sortedGroupIds.length; i++) {
+				Group group = groupMap.get(sortedGroupIds[i]);
+
+				if (group.isStagedPortlet(portletId)) {
+					staged.set(i);
+				}
+				else if (_log.isDebugEnabled()) {
+					_log.debug(
+						model.getName() + " is not staged for group " +
+							sortedGroupIds[i]);
+				}
+			}
+		}
+
+		return new StagingCheckerGroupSnapshot(
+			sortedGroupIds, stagingGroupIds, groupNames, stagedFlags);
+	}
+
+	public String getGroupName(long groupId) {
+		int index = Arrays.binarySearch(groupIds, groupId);
+
+		if (index < 0) {
+			return null;
+		}
+
+		return groupNames[index];
+	}
+
+	/**
+	 * Returns the staging group id of a live group, or <code>0</code> if the
+	 * group is not part of the snapshot.
+	 */
+	public long getStagingGroupId(long groupId) {
+		int index = Arrays.binarySearch(groupIds, groupId);
+
+		if (index < 0) {
+			return 0;
+		}
+
+		return stagingGroupIds[index];
+	}
+
+	/**
+	 * Returns the staging group id of each live group of the list that is part
+	 * of the snapshot, keeping the order of the list.
+	 */
+	public Map<Long, Long> getStagingGroupIds(List<Long> groupIds) {
+		Map<Long, Long> stagingGroupIdsMap = new LinkedHashMap<Long, Long>();
+
+		for (long groupId : groupIds) {
+			int index = Arrays.binarySearch(this.groupIds, groupId);
+
+			if (index >= 0) {
+				stagingGroupIdsMap.put(groupId, stagingGroupIds[index]);
+			}
+		}
+
+		return stagingGroupIdsMap;
+	}
+
+	public boolean hasGroup(long groupId) {
+		return Arrays.binarySearch(groupIds, groupId) >= 0;
+	}
+
+	public boolean isStagingActive(Model model, long groupId) {
+		int index = Arrays.binarySearch(groupIds, groupId);
+
+		if (index < 0) {
+			return false;
+		}
+
+		BitSet staged = stagedFlags.get(model.getClassName());
+
+		if (staged == null) {
+			return false;
+		}
+
+		return staged.get(index);
+	}
+
+	public int size() {
+		return groupIds.length;
+	}
+
+	protected StagingCheckerGroupSnapshot(
+		long[] groupIds, long[] stagingGroupIds, String[] groupNames,
+		Map<String, BitSet> stagedFlags) {
+
+		this.groupIds = groupIds;
+		this.stagingGroupIds = stagingGroupIds;
+		this.groupNames = groupNames;
+		this.stagedFlags = stagedFlags;
+	}
+
+	private static Log _log = LogFactoryUtil.getLog(
+		StagingCheckerGroupSnapshot.class);
+
+	private final long[] groupIds;
+	private final String[] groupNames;
+	private final Map<String, BitSet> stagedFlags;
+	private final long[] stagingGroupIds;
+
+}
\ No newline at end of file
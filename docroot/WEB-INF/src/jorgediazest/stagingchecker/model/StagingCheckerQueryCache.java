@@ -0,0 +1,448 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+package jorgediazest.stagingchecker.model;
+
+import com.liferay.portal.kernel.log.Log;
+import com.liferay.portal.kernel.log.LogFactoryUtil;
+
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+import jorgediazest.util.data.Data;
+
+/**
+ * Cache of the related model data queried without criterion. The size of each
+ * entry is estimated when it is stored and, if the total size goes over the
+ * maximum, the least recently used entries are evicted. Each key is loaded by
+ * a single thread at a time. A key whose entry is too big to be stored or is
+ * evicted is not loaded again, so the whole table is read at most once for
+ * each key and the callers have to query the subset of rows they need.
+ *
+ * @author Jorge Díaz
+ */
+public class StagingCheckerQueryCache
+	extends AbstractMap<String, Map<Long, List<Data>>> {
+
+	/**
+	 * @param maxSize maximum estimated size of the cached entries in bytes,
+	 *        0 for no limit
+	 */
+	public StagingCheckerQueryCache(long maxSize) {
+		this(maxSize, null);
+	}
+
+	/**
+	 * @param maxSize maximum estimated size of the cached entries in bytes,
+	 *        0 for no limit
+	 * @param valueDictionary dictionary of the values of the rows of the
+	 *        check process, <code>null</code> for no dictionary
+	 */
+	public StagingCheckerQueryCache(
+		long maxSize, StagingCheckerValueDictionary valueDictionary) {
+
+		this.maxSize = maxSize;
+		this.valueDictionary = valueDictionary;
+	}
+
+	@Override
+	public synchronized void clear() {
+		entries.clear();
+		sizes.clear();
+		uncachedKeys.clear();
+
+		counts.clear();
+
+		size = 0;
+	}
+
+	@Override
+	public synchronized boolean containsKey(Object key) {
+		return entries.containsKey(key);
+	}
+
+	@Override
+	public synchronized Set<Entry<String, Map<Long, List<Data>>>> entrySet() {
+		return Collections.unmodifiableSet(
+			new LinkedHashSet<Entry<String, Map<Long, List<Data>>>>(
+				entries.entrySet()));
+	}
+
+	@Override
+	public synchronized Map<Long, List<Data>> get(Object key) {
+		Map<Long, List<Data>> value = entries.get(key);
+
+		if (value == null) {
+			misses++;
+		}
+		else {
+			hits++;
+		}
+
+		return value;
+	}
+
+	/**
+	 * Returns the cached value of the key, loading it with the loader if it
+	 * is not cached. Only one thread loads each key: the other threads that
+	 * need the same key wait for that load and share the loaded value, while
+	 * different keys are loaded in parallel. If the load fails, the waiting
+	 * threads get its error and nothing is cached, so the next request of the
+	 * key loads it again. Returns <code>null</code> if the value of the key
+	 * was loaded before but it could not be kept in the cache.
+	 */
+	public Map<Long, List<Data>> get(
+			String key, Callable<Map<Long, List<Data>>> loader)
+		throws Exception {
+
+		Map<Long, List<Data>> value = get(key);
+
+		if (value != null) {
+			return value;
+		}
+
+		if (isUncached(key)) {
+			return null;
+		}
+
+		FutureTask<Map<Long, List<Data>>> futureTask =
+			new FutureTask<Map<Long, List<Data>>>(loader);
+
+		FutureTask<Map<Long, List<Data>>> loadingTask =
+			loadingTasks.putIfAbsent(key, futureTask);
+
+		if (loadingTask == null) {
+			loadingTask = futureTask;
+
+			try {
+				value = getCachedValue(key);
+
+				if (value != null) {
+					return value;
+				}
+
+				if (isUncached(key)) {
+					return null;
+				}
+
+				futureTask.run();
+
+				value = getResult(futureTask);
+
+				put(key, value);
+
+				return value;
+			}
+			finally {
+				loadingTasks.remove(key, futureTask);
+			}
+		}
+
+		synchronized(this) {
+			waits++;
+		}
+
+		return getResult(loadingTask);
+	}
+
+	/**
+	 * Returns the number of rows of the key, counting them with the loader if
+	 * they were not counted yet. Counts are small, so they are always kept.
+	 */
+	public long getCount(String key, Callable<Long> loader) throws Exception {
+		Long count = counts.get(key);
+
+		if (count == null) {
+			count = loader.call();
+
+			counts.put(key, count);
+		}
+
+		return count;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getLoads() {
+		return loads;
+	}
+
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Returns the estimated size of the cached entries in bytes.
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	public StagingCheckerValueDictionary getValueDictionary() {
+		return valueDictionary;
+	}
+
+	/**
+	 * Returns <code>true</code> if the value of the key was loaded but it is
+	 * no longer cached, because it was too big or it was evicted.
+	 */
+	public synchronized boolean isUncached(String key) {
+		return uncachedKeys.contains(key);
+	}
+
+	@Override
+	public Map<Long, List<Data>> put(
+		String key, Map<Long, List<Data>> value) {
+
+		long valueSize = estimateSize(value);
+
+		synchronized(this) {
+			loads++;
+
+			Map<Long, List<Data>> oldValue = remove(key);
+
+			if ((maxSize > 0) && (valueSize > maxSize)) {
+				evictions++;
+
+				uncachedKeys.add(key);
+
+				if (_log.isInfoEnabled()) {
+					_log.info(
+						"Not caching " + key + ", its estimated size " +
+							valueSize + " bytes is over the maximum of " +
+								maxSize + " bytes. Its related data will be " +
+									"queried for the rows of each check task");
+				}
+
+				return oldValue;
+			}
+
+			entries.put(key, value);
+			sizes.put(key, valueSize);
+
+			size += valueSize;
+
+			evict();
+
+			return oldValue;
+		}
+	}
+
+	@Override
+	public synchronized Map<Long, List<Data>> remove(Object key) {
+		Map<Long, List<Data>> value = entries.remove(key);
+
+		Long valueSize = sizes.remove(key);
+
+		if (valueSize != null) {
+			size -= valueSize;
+		}
+
+		return value;
+	}
+
+	@Override
+	public synchronized int size() {
+		return entries.size();
+	}
+
+	@Override
+	public synchronized String toString() {
+		return "entries=" + entries.size() + ", size=" + size +
+			" bytes, max size=" + maxSize + " bytes, hits=" + hits +
+				", misses=" + misses + ", loads=" + loads + ", waits=" +
+					waits + ", evictions=" + evictions + ", uncached keys=" +
+						uncachedKeys.size();
+	}
+
+	/**
+	 * Returns a rough estimation of the memory used by the data, counting the
+	 * objects of each row and its attribute values.
+	 */
+	protected static long estimateSize(Map<Long, List<Data>> dataMap) {
+		long estimatedSize = estimateMapSize(dataMap);
+
+		for (List<Data> dataList : dataMap.values()) {
+			for (Data data : dataList) {
+				if (data instanceof ColumnarData) {
+					estimatedSize += ((ColumnarData)data).estimateSize();
+
+					continue;
+				}
+
+				Map<String, Object> map = data.getMap();
+
+				estimatedSize += 96 + (40L * map.size());
+
+				for (Object value : map.values()) {
+					estimatedSize += estimateValueSize(value);
+				}
+			}
+		}
+
+		return estimatedSize;
+	}
+
+	/**
+	 * Returns a rough estimation of the memory used by the map, without the
+	 * data of the rows. A hash map keeps an entry, a boxed key and a list for
+	 * each key.
+	 */
+	protected static long estimateMapSize(Map<Long, List<Data>> dataMap) {
+		if (dataMap instanceof LongDataListMap) {
+			return ((LongDataListMap)dataMap).estimateSize();
+		}
+
+		long estimatedSize = 64 + (48L * dataMap.size());
+
+		for (List<Data> dataList : dataMap.values()) {
+			estimatedSize += 24 + (8L * dataList.size());
+		}
+
+		return estimatedSize;
+	}
+
+	protected static long estimateValueSize(Object value) {
+		if (value == null) {
+			return 0;
+		}
+
+		if (value instanceof String) {
+			return 40 + (2L * ((String)value).length());
+		}
+
+		if (value instanceof Collection) {
+			long estimatedSize = 48;
+
+			for (Object element : (Collection<?>)value) {
+				estimatedSize += 32 + estimateValueSize(element);
+			}
+
+			return estimatedSize;
+		}
+
+		if (value instanceof Map) {
+			long estimatedSize = 48;
+
+			for (Entry<?, ?> entry : ((Map<?, ?>)value).entrySet()) {
+				estimatedSize +=
+					32 + estimateValueSize(entry.getKey()) +
+						estimateValueSize(entry.getValue());
+			}
+
+			return estimatedSize;
+		}
+
+		return 24;
+	}
+
+	protected void evict() {
+		if (maxSize <= 0) {
+			return;
+		}
+
+		Iterator<Entry<String, Map<Long, List<Data>>>> iterator =
+			entries.entrySet().iterator();
+
+		while ((size > maxSize) && iterator.hasNext()) {
+			String key = iterator.next().getKey();
+
+			iterator.remove();
+
+			size -= sizes.remove(key);
+
+			evictions++;
+
+			uncachedKeys.add(key);
+
+			if (_log.isInfoEnabled()) {
+				_log.info(
+					"Evicted " + key + " from the query cache. Its related " +
+						"data will be queried for the rows of each check " +
+							"task");
+			}
+		}
+	}
+
+	protected synchronized Map<Long, List<Data>> getCachedValue(String key) {
+		return entries.get(key);
+	}
+
+	protected static Map<Long, List<Data>> getResult(
+			FutureTask<Map<Long, List<Data>>> futureTask)
+		throws Exception {
+
+		try {
+			return futureTask.get();
+		}
+		catch (ExecutionException ee) {
+			Throwable cause = ee.getCause();
+
+			if (cause instanceof Exception) {
+				throw (Exception)cause;
+			}
+
+			if (cause instanceof Error) {
+				throw (Error)cause;
+			}
+
+			throw ee;
+		}
+	}
+
+	private static Log _log = LogFactoryUtil.getLog(
+		StagingCheckerQueryCache.class);
+
+	private ConcurrentMap<String, Long> counts =
+		new ConcurrentHashMap<String, Long>();
+	private Map<String, Map<Long, List<Data>>> entries =
+		new LinkedHashMap<String, Map<Long, List<Data>>>(16, 0.75f, true);
+	private long evictions = 0;
+	private long hits = 0;
+	private long loads = 0;
+	private ConcurrentMap<String, FutureTask<Map<Long, List<Data>>>>
+		loadingTasks =
+			new ConcurrentHashMap<String, FutureTask<Map<Long, List<Data>>>>();
+	private long maxSize;
+	private long misses = 0;
+	private long size = 0;
+	private Map<String, Long> sizes = new HashMap<String, Long>();
+	private Set<String> uncachedKeys = new HashSet<String>();
+	private StagingCheckerValueDictionary valueDictionary;
+	private long waits = 0;
+
+}
\ No newline at end of file
@@ -14,21 +14,42 @@
 
 package jorgediazest.stagingchecker.model;
 
+import com.liferay.portal.kernel.dao.db.DBManagerUtil;
+import com.liferay.portal.kernel.dao.db.DBType;
 import com.liferay.portal.kernel.dao.orm.Criterion;
+import com.liferay.portal.kernel.dao.orm.DynamicQuery;
+import com.liferay.portal.kernel.dao.orm.OrderFactoryUtil;
+import com.liferay.portal.kernel.dao.orm.Projection;
+import com.liferay.portal.kernel.dao.orm.ProjectionFactoryUtil;
+import com.liferay.portal.kernel.dao.orm.ProjectionList;
+import com.liferay.portal.kernel.dao.orm.Type;
 import com.liferay.portal.kernel.log.Log;
 import com.liferay.portal.kernel.log.LogFactoryUtil;
 import com.liferay.portal.kernel.util.GetterUtil;
+import com.liferay.portal.kernel.util.StringUtil;
 import com.liferay.portal.kernel.util.Validator;
 
+import java.io.File;
+
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.Callable;
 
+import jorgediazest.stagingchecker.ExecutionMode;
+import jorgediazest.stagingchecker.executor.CheckExecutor;
 import jorgediazest.stagingchecker.util.ConfigurationUtil;
+import jorgediazest.stagingchecker.util.PortletPropsValues;
 
 import jorgediazest.util.data.Data;
 import jorgediazest.util.model.Model;
@@ -36,9 +57,8 @@ import jorgediazest.util.model.ModelFactory;
 import jorgediazest.util.model.ModelUtil;
 import jorgediazest.util.query.Query;
 import jorgediazest.util.query.QueryUtil;
-public class StagingCheckerQueryHelper {
+public class StagingCheckerQueryHelper implements Cloneable {
 
-	@SuppressWarnings("unchecked")
 	public void addRelatedModelData(
 			Map<String, Map<Long, List<Data>>> queryCache,
 			Map<Long, Data> liferayDataMap, Model model, long groupId)
@@ -51,12 +71,55 @@ public class StagingCheckerQueryHelper {
 		Criterion groupCriterion = model.getAttributeCriterion(
 			"groupId", groupId);
 
+		addRelatedModelData(queryCache, liferayDataMap, model, groupCriterion);
+	}
+
+	public void addRelatedModelData(
+			Map<String, Map<Long, List<Data>>> queryCache,
+			Map<Long, Data> liferayDataMap, Model model, List<Long> groupIds)
+		throws Exception {
+
+		if (liferayDataMap.isEmpty()) {
+			return;
+		}
+
+		Criterion groupCriterion = model.getAttributeCriterion(
+			"groupId", groupIds);
+
+		addRelatedModelData(queryCache, liferayDataMap, model, groupCriterion);
+	}
+
+	public void addRelatedModelData(
+			Map<String, Map<Long, List<Data>>> queryCache,
+			Map<Long, Data> liferayDataMap, Model model,
+			Criterion groupCriterion)
+		throws Exception {
+
+		addRelatedModelData(
+			queryCache, liferayDataMap, model, groupCriterion, isPaginated());
+	}
+
+	/**
+	 * Adds the related model data to the rows of the data map. If
+	 * <code>paginated</code> is <code>true</code>, the data map is a page of
+	 * the rows matching the criterion, so only the related data of the rows
+	 * of the page is queried.
+	 */
+	@SuppressWarnings("unchecked")
+	public void addRelatedModelData(
+			Map<String, Map<Long, List<Data>>> queryCache,
+			Map<Long, Data> liferayDataMap, Model model,
+			Criterion groupCriterion, boolean paginated)
+		throws Exception {
+
 		ModelFactory modelFactory = model.getModelFactory();
 
 		List<Map<String, Object>> relatedDataToQueryList =
-			ConfigurationUtil.getRelatedDataToQuery(model);
+			getRelatedDataToQuery(model);
 
 		for (Map<String, Object> rdtq : relatedDataToQueryList) {
+			CheckExecutor.checkCancelled();
+
 			String relatedClassName = (String) rdtq.get("model");
 			List<String> mappingsSource = (List<String>)rdtq.get(
 				"mappingsSource");
@@ -77,7 +140,7 @@ public class StagingCheckerQueryHelper {
 			addRelatedModelData(
 				queryCache, liferayDataMap, model, relatedModel, mappingsSource,
 				mappingsRelated, attributesToQuery, rawData, groupCriterion,
-				relatedFilterString);
+				relatedFilterString, paginated);
 		}
 	}
 
@@ -86,7 +149,8 @@ public class StagingCheckerQueryHelper {
 			Map<Long, Data> liferayDataMap, Model model, Model relatedModel,
 			List<String> mappingsSource, List<String> mappingsRelated,
 			List<String> attributesToQuery, boolean rawData,
-			Criterion groupCriterion, String relatedFilterString)
+			Criterion groupCriterion, String relatedFilterString,
+			boolean paginated)
 		throws Exception {
 
 		Criterion relatedCriterion = null;
@@ -111,19 +175,60 @@ public class StagingCheckerQueryHelper {
 		relatedAttributes.addAll(attributesToQuery);
 		relatedAttributes.addAll(mappingsRelated);
 
+		List<Long> lookupValues = null;
+
+		if (PortletPropsValues.RELATED_LOOKUP_ENABLED) {
+			lookupValues = getLookupValues(
+				queryCache, liferayDataMap, mappingsSource.get(0),
+				relatedModel, mappingsRelated.get(0), relatedCriterion);
+		}
+
 		Map<Long, List<Data>> relatedMap;
 
-		if (relatedCriterion == null) {
+		if (lookupValues != null) {
+			relatedMap = getDataWithDuplicates(
+				relatedModel, relatedAttributes, mappingsRelated.get(0),
+				relatedCriterion, lookupValues);
+		}
+		else if (relatedCriterion == null) {
 			relatedMap = getDataWithDuplicatesWithCache(
 				queryCache, relatedModel, relatedAttributes, mappingsRelated,
 				relatedCriterion);
+
+			if (relatedMap == null) {
+				relatedMap = getDataWithDuplicates(
+					liferayDataMap, mappingsSource.get(0), relatedModel,
+					relatedAttributes, mappingsRelated.get(0),
+					relatedCriterion);
+			}
 		}
 		else {
-			relatedMap = Query.getDataWithDuplicates(
-				relatedModel, relatedAttributes.toArray(new String[0]),
-				mappingsRelated.get(0), relatedCriterion);
+			Criterion rangeCriterion = null;
+
+			if (paginated) {
+				rangeCriterion = getRangeCriterion(
+					liferayDataMap, mappingsSource.get(0), relatedModel,
+					mappingsRelated.get(0));
+			}
+
+			if (paginated && (rangeCriterion == null)) {
+				relatedMap = getDataWithDuplicates(
+					liferayDataMap, mappingsSource.get(0), relatedModel,
+					relatedAttributes, mappingsRelated.get(0),
+					relatedCriterion);
+			}
+			else {
+				relatedCriterion = ModelUtil.generateConjunctionCriterion(
+					relatedCriterion, rangeCriterion);
+
+				relatedMap = Query.getDataWithDuplicates(
+					relatedModel, relatedAttributes.toArray(new String[0]),
+					mappingsRelated.get(0), relatedCriterion);
+			}
 		}
 
+		CheckExecutor.checkCancelled();
+
 		Map<Long, List<Data>> matchedMap =
 			QueryUtil.getMatchingEntriesMap(
 				liferayDataMap, relatedMap,
@@ -162,54 +267,1183 @@ public class StagingCheckerQueryHelper {
 		return relatedModels;
 	}
 
-	public Map<Long, List<Data>> getDataWithDuplicatesWithCache(
-			Map<String, Map<Long, List<Data>>> queryCache, Model relatedModel,
-			List<String> relatedAttributes, List<String> mappingsRelated,
-			Criterion relatedCriterion)
+	/**
+	 * Returns a rough estimate of the bytes used in memory by a row of the
+	 * model with its related data.
+	 */
+	public long estimateRowSize(Model model) {
+		int attributeCount = getAttributesToQuery(model).size();
+
+		for (Map<String, Object> rdtq : getRelatedDataToQuery(model)) {
+			attributeCount += getList(rdtq, "attributesToQuery").size();
+		}
+
+		return 96 + (88L * attributeCount);
+	}
+
+	/**
+	 * Returns the related data whose mapping attribute has one of the given
+	 * values. The values are converted to the class of the mapping attribute
+	 * and queried in chunks to keep the size of the IN clauses bounded. If
+	 * they can not be converted, all the related data matching the criterion
+	 * is returned.
+	 */
+	public Map<Long, List<Data>> getDataWithDuplicates(
+			Model relatedModel, List<String> relatedAttributes,
+			String mappingRelated, Criterion relatedCriterion,
+			List<Long> values)
 		throws Exception {
 
-		Map<Long, List<Data>> relatedMap;
+		List<Object> attributeValues = getAttributeValues(
+			relatedModel, mappingRelated, values);
+
+		if (attributeValues == null) {
+			return Query.getDataWithDuplicates(
+				relatedModel, relatedAttributes.toArray(new String[0]),
+				mappingRelated, relatedCriterion);
+		}
+
+		Map<Long, List<Data>> relatedMap = new LongDataListMap(values.size());
+
+		for (int i = 0; i < attributeValues.size();
+				i += PRIMARY_KEYS_CHUNK_SIZE) {
+
+			List<Object> valuesChunk = attributeValues.subList(
+				i,
+				Math.min(i + PRIMARY_KEYS_CHUNK_SIZE, attributeValues.size()));
+
+			Criterion criterion = ModelUtil.generateConjunctionCriterion(
+				relatedCriterion,
+				relatedModel.getAttributeCriterion(
+					mappingRelated, valuesChunk));
+
+			relatedMap.putAll(
+				Query.getDataWithDuplicates(
+					relatedModel, relatedAttributes.toArray(new String[0]),
+					mappingRelated, criterion));
+		}
+
+		return relatedMap;
+	}
+
+	/**
+	 * Returns the related data of all the rows of the related model, read
+	 * once and kept in the query cache. Returns <code>null</code> if the
+	 * related data was already read but it could not be kept in the query
+	 * cache, so the caller has to query the related data of its rows.
+	 */
+	public Map<Long, List<Data>> getDataWithDuplicatesWithCache(
+			final Map<String, Map<Long, List<Data>>> queryCache,
+			final Model relatedModel, final List<String> relatedAttributes,
+			final List<String> mappingsRelated,
+			final Criterion relatedCriterion)
+		throws Exception {
 
 		String attributes = Arrays.toString(relatedAttributes.toArray());
 
-		String cacheKey =
+		final String cacheKey =
 			relatedModel.getName() + "_" + attributes + "_key_" +
 				mappingsRelated.get(0);
 
-		relatedMap = queryCache.get(cacheKey);
-
-		if (relatedMap == null) {
-			synchronized(relatedModel) {
-				relatedMap = queryCache.get(cacheKey);
+		Callable<Map<Long, List<Data>>> loader =
+			new Callable<Map<Long, List<Data>>>() {
 
-				if (relatedMap == null) {
-					relatedMap = Query.getDataWithDuplicates(
+				@Override
+				public Map<Long, List<Data>> call() throws Exception {
+					Map<Long, List<Data>> dataMap = Query.getDataWithDuplicates(
 						relatedModel, relatedAttributes.toArray(new String[0]),
 						mappingsRelated.get(0), relatedCriterion);
 
-					queryCache.put(cacheKey, relatedMap);
+					Map<Long, List<Data>> relatedMap;
+
+					if (PortletPropsValues.DATA_COLUMNAR_ENABLED) {
+						relatedMap = ColumnarDataStore.toColumnarList(
+							dataMap, getValueDictionary(queryCache));
+					}
+					else {
+						relatedMap = new LongDataListMap(dataMap);
+					}
+
+					if (_log.isDebugEnabled()) {
+						long size = StagingCheckerQueryCache.estimateSize(
+							relatedMap);
+						long hashMapSize =
+							StagingCheckerQueryCache.estimateSize(dataMap);
+
+						_log.debug(
+							"Loaded " + cacheKey + ": " + relatedMap.size() +
+								" keys, estimated size " + size +
+									" bytes instead of " + hashMapSize +
+										" bytes");
+					}
+
+					return relatedMap;
 				}
-			}
+
+			};
+
+		if (queryCache instanceof StagingCheckerQueryCache) {
+			StagingCheckerQueryCache stagingCheckerQueryCache =
+				(StagingCheckerQueryCache)queryCache;
+
+			return stagingCheckerQueryCache.get(cacheKey, loader);
+		}
+
+		Map<Long, List<Data>> relatedMap = queryCache.get(cacheKey);
+
+		if (relatedMap == null) {
+			relatedMap = loader.call();
+
+			queryCache.put(cacheKey, relatedMap);
 		}
 
 		return relatedMap;
 	}
 
+	/**
+	 * Returns the aggregates of the rows of the model computed by the
+	 * database: the row count, the last modified date, the sum of the
+	 * aggregate attributes and, if the database supports it, the checksum of
+	 * the compared attributes. They do not depend on the order of the rows.
+	 */
+	public List<Object> getLiferayAggregates(Model model, Criterion criterion)
+		throws Exception {
+
+		ProjectionList projectionList = ProjectionFactoryUtil.projectionList();
+
+		projectionList.add(ProjectionFactoryUtil.rowCount());
+
+		if (model.hasAttribute("modifiedDate")) {
+			projectionList.add(ProjectionFactoryUtil.max("modifiedDate"));
+		}
+
+		for (String attribute : getAggregateAttributes(model)) {
+			projectionList.add(ProjectionFactoryUtil.sum(attribute));
+		}
+
+		Projection checksumProjection = getChecksumProjection(model);
+
+		if (checksumProjection != null) {
+			projectionList.add(checksumProjection);
+		}
+
+		long startTime = System.currentTimeMillis();
+
+		List<?> results = model.executeDynamicQuery(criterion, projectionList);
+
+		CheckExecutor.recordQueryLatency(
+			System.currentTimeMillis() - startTime);
+
+		if (results.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		Object result = results.get(0);
+
+		if (result instanceof Object[]) {
+			return Arrays.asList((Object[])result);
+		}
+
+		return Collections.singletonList(result);
+	}
+
+	/**
+	 * Returns the digests of the rows of the model bucketed by key. Only the
+	 * digests are kept, so the memory used does not depend on the number of
+	 * rows.
+	 */
+	public BucketDigests getLiferayBucketDigests(
+			final Map<String, Map<Long, List<Data>>> queryCache,
+			final Model model, final Criterion criterion, int bucketCount)
+		throws Exception {
+
+		final BucketDigests bucketDigests = new BucketDigests(bucketCount);
+
+		getLiferayData(
+			model, criterion,
+			new DataPageHandler() {
+
+				@Override
+				public void processPage(Map<Long, Data> dataPage)
+					throws Exception {
+
+					for (DataFingerprint fingerprint :
+							getFingerprints(
+								queryCache, model, criterion, dataPage,
+								isPaginated())) {
+
+						bucketDigests.add(fingerprint);
+					}
+				}
+
+			});
+
+		return bucketDigests;
+	}
+
 	public Map<Long, Data> getLiferayData(Model model, long groupId)
 		throws Exception {
 
 		Criterion criterion = model.getAttributeCriterion("groupId", groupId);
 
-		Collection<String> attributesToQuery =
-			ConfigurationUtil.getModelAttributesToQuery(model);
+		return getLiferayData(model, criterion);
+	}
+
+	public Map<Long, Data> getLiferayData(Model model, List<Long> groupIds)
+		throws Exception {
+
+		Criterion criterion = model.getAttributeCriterion("groupId", groupIds);
+
+		return getLiferayData(model, criterion);
+	}
+
+	/**
+	 * Reads the data of the model in pages of <code>pageSize</code> rows
+	 * ordered by <code>orderAttribute</code>, which must be unique for the
+	 * rows matching the criterion. Each page starts after the last value of
+	 * the previous one, so no rows are skipped by the database.
+	 */
+	public void getLiferayData(
+			Model model, Criterion criterion, String orderAttribute,
+			int pageSize, DataPageHandler dataPageHandler)
+		throws Exception {
+
+		Object lastValue = null;
+
+		while (true) {
+			List<?> pageValues = getPageValues(
+				model, criterion, orderAttribute, lastValue, pageSize);
+
+			if (pageValues.isEmpty()) {
+				return;
+			}
+
+			lastValue = pageValues.get(pageValues.size() - 1);
+
+			Criterion pageCriterion = ModelUtil.generateConjunctionCriterion(
+				criterion,
+				model.getProperty(orderAttribute).between(
+					pageValues.get(0), lastValue));
+
+			dataPageHandler.processPage(getLiferayData(model, pageCriterion));
+
+			if (pageValues.size() < pageSize) {
+				return;
+			}
+		}
+	}
+
+	public void getLiferayData(
+			Model model, Criterion criterion, DataPageHandler dataPageHandler)
+		throws Exception {
+
+		String primaryKeyAttribute = model.getPrimaryKeyAttribute();
+
+		if (!PortletPropsValues.FETCH_PAGINATION_ENABLED ||
+			Validator.isNull(primaryKeyAttribute) ||
+			(PortletPropsValues.FETCH_PAGE_SIZE <= 0)) {
+
+			dataPageHandler.processPage(getLiferayData(model, criterion));
+
+			return;
+		}
+
+		getLiferayData(
+			model, criterion, primaryKeyAttribute,
+			PortletPropsValues.FETCH_PAGE_SIZE, dataPageHandler);
+	}
+
+	public Map<Long, Data> getLiferayData(Model model, Criterion criterion)
+		throws Exception {
+
+		CheckExecutor.checkCancelled();
+
+		Collection<String> attributesToQuery = getAttributesToQuery(model);
 
 		String[] attributesToQueryArr = attributesToQuery.toArray(
 			new String[0]);
 
-		return Query.getData(model, attributesToQueryArr, criterion);
+		long startTime = System.currentTimeMillis();
+
+		Map<Long, Data> dataMap = Query.getData(
+			model, attributesToQueryArr, criterion);
+
+		CheckExecutor.recordQueryLatency(
+			System.currentTimeMillis() - startTime);
+
+		return dataMap;
+	}
+
+	/**
+	 * Returns the data of the rows of the model with the given primary keys,
+	 * with its related model data. The primary keys are queried in chunks to
+	 * keep the size of the IN clauses bounded.
+	 */
+	public Map<Long, Data> getLiferayDataByPrimaryKeys(
+			Map<String, Map<Long, List<Data>>> queryCache, Model model,
+			Criterion groupCriterion, List<Long> primaryKeys)
+		throws Exception {
+
+		Map<Long, Data> dataMap = new LongHashMap<Data>(primaryKeys.size());
+
+		String primaryKeyAttribute = model.getPrimaryKeyAttribute();
+
+		for (int i = 0; i < primaryKeys.size();
+			 i += PRIMARY_KEYS_CHUNK_SIZE) {
+
+			List<Long> primaryKeysChunk = primaryKeys.subList(
+				i, Math.min(i + PRIMARY_KEYS_CHUNK_SIZE, primaryKeys.size()));
+
+			Criterion criterion = ModelUtil.generateConjunctionCriterion(
+				groupCriterion,
+				model.getAttributeCriterion(
+					primaryKeyAttribute, primaryKeysChunk));
+
+			Map<Long, Data> dataMapChunk = getLiferayData(model, criterion);
+
+			if (!dataMapChunk.isEmpty()) {
+				addRelatedModelData(
+					queryCache, dataMapChunk, model, groupCriterion);
+			}
+
+			dataMap.putAll(dataMapChunk);
+		}
+
+		return dataMap;
 	}
 
+	/**
+	 * Returns the data of the model with its related model data. If the
+	 * pagination is enabled, the data is read and completed with the related
+	 * data page by page.
+	 */
+	public Map<Long, Data> getLiferayDataWithRelatedData(
+			final Map<String, Map<Long, List<Data>>> queryCache,
+			final Model model, final Criterion criterion)
+		throws Exception {
+
+		if (!PortletPropsValues.FETCH_PAGINATION_ENABLED) {
+			Map<Long, Data> dataMap = getLiferayData(model, criterion);
+
+			if (!dataMap.isEmpty()) {
+				addRelatedModelData(queryCache, dataMap, model, criterion);
+			}
+
+			return getColumnarData(queryCache, dataMap);
+		}
+
+		final Map<Long, Data> dataMap = new LongHashMap<Data>();
+
+		getLiferayData(
+			model, criterion,
+			new DataPageHandler() {
+
+				@Override
+				public void processPage(Map<Long, Data> dataPage)
+					throws Exception {
+
+					if (!dataPage.isEmpty()) {
+						addRelatedModelData(
+							queryCache, dataPage, model, criterion);
+					}
+
+					dataMap.putAll(getColumnarData(queryCache, dataPage));
+				}
+
+			});
+
+		return dataMap;
+	}
+
+	public Map<String, DataFingerprint> getLiferayFingerprints(
+			Map<String, Map<Long, List<Data>>> queryCache, Model model,
+			Criterion criterion)
+		throws Exception {
+
+		return getLiferayFingerprints(queryCache, model, criterion, null, null);
+	}
+
+	/**
+	 * Returns the fingerprints of the rows of the model, indexed by key. The
+	 * rows are read page by page if the pagination is enabled, and only their
+	 * fingerprints are kept. If <code>buckets</code> is not
+	 * <code>null</code>, only the fingerprints of the rows in those buckets
+	 * are returned.
+	 */
+	public Map<String, DataFingerprint> getLiferayFingerprints(
+			final Map<String, Map<Long, List<Data>>> queryCache,
+			final Model model, final Criterion criterion,
+			final BucketDigests bucketDigests, final BitSet buckets)
+		throws Exception {
+
+		final Map<String, DataFingerprint> fingerprints =
+			new HashMap<String, DataFingerprint>();
+
+		getLiferayData(
+			model, criterion,
+			new DataPageHandler() {
+
+				@Override
+				public void processPage(Map<Long, Data> dataPage)
+					throws Exception {
+
+					for (DataFingerprint fingerprint :
+							getFingerprints(
+								queryCache, model, criterion, dataPage,
+								isPaginated())) {
+
+						if ((buckets != null) &&
+							!buckets.get(
+								bucketDigests.getBucket(fingerprint))) {
+
+							continue;
+						}
+
+						fingerprints.put(fingerprint.getKey(), fingerprint);
+					}
+				}
+
+			});
+
+		return fingerprints;
+	}
+
+	/**
+	 * Writes the fingerprints of the rows of the model to a spill file, which
+	 * is returned mapped. The rows are always read page by page, so only one
+	 * page is kept in memory. The caller must close the file.
+	 */
+	public DataSpillFile getLiferaySpillFile(
+			final Map<String, Map<Long, List<Data>>> queryCache,
+			final Model model, final Criterion criterion)
+		throws Exception {
+
+		File directory = null;
+
+		if (Validator.isNotNull(PortletPropsValues.SPILL_DIRECTORY)) {
+			directory = new File(PortletPropsValues.SPILL_DIRECTORY);
+		}
+
+		final DataSpillFile spillFile = new DataSpillFile(directory);
+
+		int pageSize = PortletPropsValues.FETCH_PAGE_SIZE;
+
+		if (pageSize <= 0) {
+			pageSize = 1000;
+		}
+
+		try {
+			getLiferayData(
+				model, criterion, model.getPrimaryKeyAttribute(), pageSize,
+				new DataPageHandler() {
+
+					@Override
+					public void processPage(Map<Long, Data> dataPage)
+						throws Exception {
+
+						for (DataFingerprint fingerprint :
+								getFingerprints(
+									queryCache, model, criterion, dataPage,
+									true)) {
+
+							spillFile.add(fingerprint);
+						}
+					}
+
+				});
+
+			spillFile.map();
+		}
+		catch (Exception e) {
+			spillFile.close();
+
+			throw e;
+		}
+
+		return spillFile;
+	}
+
+	/**
+	 * Returns the attribute used to read the data of the model sorted by key,
+	 * or <code>null</code> if the key of the model is not a single attribute
+	 * of its own table.
+	 */
+	public String getSortKeyAttribute(Model model) {
+		List<String> keyAttributes = model.getKeyAttributes();
+
+		if ((keyAttributes == null) || (keyAttributes.size() != 1)) {
+			return null;
+		}
+
+		String keyAttribute = keyAttributes.get(0);
+
+		if (!model.hasAttribute(keyAttribute)) {
+			return null;
+		}
+
+		return keyAttribute;
+	}
+
+	/**
+	 * Returns the query helper to use for the given execution mode. If only
+	 * the rows missing in staging or live are shown, the returned helper only
+	 * queries the attributes and related data needed to get the key of the
+	 * rows.
+	 */
+	public StagingCheckerQueryHelper getQueryHelper(
+		Set<ExecutionMode> executionMode) {
+
+		if (executionMode.contains(ExecutionMode.SHOW_BOTH_EXACT) ||
+			executionMode.contains(ExecutionMode.SHOW_BOTH_NOTEXACT) ||
+			executionMode.contains(ExecutionMode.DUMP_ALL_OBJECTS_TO_LOG)) {
+
+			return this;
+		}
+
+		try {
+			StagingCheckerQueryHelper queryHelper =
+				(StagingCheckerQueryHelper)clone();
+
+			queryHelper.keyAttributesOnly = true;
+
+			return queryHelper;
+		}
+		catch (CloneNotSupportedException cnse) {
+			throw new IllegalStateException(cnse);
+		}
+	}
+
+	/**
+	 * Returns <code>true</code> if {@link #getLiferayAggregates} includes a
+	 * checksum of the attributes compared by the check, so rows with different
+	 * values of those attributes change the aggregates.
+	 */
+	public boolean isChecksumAggregated(Model model) {
+		if (getChecksumProjection(model) == null) {
+			return false;
+		}
+
+		return true;
+	}
+
+	public Map<Long, Map<Long, Data>> splitByGroupId(
+		Map<Long, Data> liferayDataMap) {
+
+		Map<Long, Map<Long, Data>> groupDataMap =
+			new HashMap<Long, Map<Long, Data>>();
+
+		for (Entry<Long, Data> entry : liferayDataMap.entrySet()) {
+			Long groupId = entry.getValue().getGroupId();
+
+			Map<Long, Data> dataMap = groupDataMap.get(groupId);
+
+			if (dataMap == null) {
+				dataMap = new LongHashMap<Data>();
+
+				groupDataMap.put(groupId, dataMap);
+			}
+
+			dataMap.put(entry.getKey(), entry.getValue());
+		}
+
+		return groupDataMap;
+	}
+
+	/**
+	 * Returns the numeric key, version and status attributes of the model,
+	 * whose sums are compared by the aggregate check. The primary key and the
+	 * group id are skipped, as they are different in staging and live.
+	 */
+	protected List<String> getAggregateAttributes(Model model) {
+		Set<String> attributes = new LinkedHashSet<String>(
+			model.getKeyAttributes());
+
+		attributes.add("status");
+		attributes.add("version");
+
+		attributes.remove("groupId");
+		attributes.remove(model.getPrimaryKeyAttribute());
+
+		List<String> aggregateAttributes = new ArrayList<String>();
+
+		for (String attribute : attributes) {
+			if (!model.hasAttribute(attribute)) {
+				continue;
+			}
+
+			Class<?> attributeClass = model.getAttributeClass(attribute);
+
+			if ((attributeClass != null) &&
+				Number.class.isAssignableFrom(attributeClass)) {
+
+				aggregateAttributes.add(attribute);
+			}
+		}
+
+		return aggregateAttributes;
+	}
+
+	/**
+	 * Returns the attributes of the model to query. If only the key is
+	 * needed, the attributes not needed to get the key are skipped.
+	 */
+	protected Collection<String> getAttributesToQuery(Model model) {
+		Collection<String> attributesToQuery =
+			ConfigurationUtil.getModelAttributesToQuery(model);
+
+		if (!keyAttributesOnly) {
+			return attributesToQuery;
+		}
+
+		Set<String> requiredAttributes = new HashSet<String>();
+
+		requiredAttributes.add("pk");
+		requiredAttributes.add("companyId");
+		requiredAttributes.add("groupId");
+		requiredAttributes.add(model.getPrimaryKeyAttribute());
+		requiredAttributes.addAll(model.getKeyAttributes());
+
+		for (Map<String, Object> rdtq : getRelatedDataToQuery(model)) {
+			requiredAttributes.addAll(getList(rdtq, "mappingsSource"));
+		}
+
+		List<String> prunedAttributesToQuery = new ArrayList<String>();
+
+		for (String attribute : attributesToQuery) {
+			if (requiredAttributes.contains(attribute)) {
+				prunedAttributesToQuery.add(attribute);
+			}
+		}
+
+		return prunedAttributesToQuery;
+	}
+
+	/**
+	 * Returns the values converted to the class of the attribute, so they can
+	 * be used in its criteria, or <code>null</code> if the values can not be
+	 * converted to that class.
+	 */
+	protected List<Object> getAttributeValues(
+		Model model, String attribute, List<Long> values) {
+
+		Class<?> attributeClass = model.getAttributeClass(attribute);
+
+		if ((attributeClass == null) || (attributeClass == Long.class)) {
+			return new ArrayList<Object>(values);
+		}
+
+		if ((attributeClass != Integer.class) &&
+			(attributeClass != Short.class) &&
+			(attributeClass != String.class)) {
+
+			return null;
+		}
+
+		List<Object> attributeValues = new ArrayList<Object>(values.size());
+
+		for (Long value : values) {
+			if (attributeClass == Integer.class) {
+				attributeValues.add(value.intValue());
+			}
+			else if (attributeClass == Short.class) {
+				attributeValues.add(value.shortValue());
+			}
+			else {
+				attributeValues.add(String.valueOf(value));
+			}
+		}
+
+		return attributeValues;
+	}
+
+	/**
+	 * Returns the attributes whose values are added to the checksum of the
+	 * rows: the key attributes and, unless only the key is needed, the exact
+	 * attributes to check.
+	 */
+	protected Collection<String> getChecksumAttributes(Model model) {
+		Set<String> attributes = new LinkedHashSet<String>();
+
+		List<String> keyAttributes = model.getKeyAttributes();
+
+		if (keyAttributes != null) {
+			attributes.addAll(keyAttributes);
+		}
+
+		if (!keyAttributesOnly) {
+			attributes.addAll(
+				ConfigurationUtil.getExactAttributesToCheck(model));
+		}
+
+		attributes.remove("groupId");
+		attributes.remove(model.getPrimaryKeyAttribute());
+
+		return attributes;
+	}
+
+	/**
+	 * Returns the projection of the checksum of the rows, or
+	 * <code>null</code> if any of the attributes is not a column of the model
+	 * or the database does not support it.
+	 */
+	protected Projection getChecksumProjection(Model model) {
+		Collection<String> attributes = getChecksumAttributes(model);
+
+		if (attributes.isEmpty()) {
+			return null;
+		}
+
+		List<String> columns = new ArrayList<String>();
+
+		for (String attribute : attributes) {
+			String columnName = getColumnName(model, attribute);
+
+			if (columnName == null) {
+				return null;
+			}
+
+			columns.add("{alias}." + columnName);
+		}
+
+		String sql = getChecksumSql(model, attributes, columns);
+
+		if (sql == null) {
+			return null;
+		}
+
+		return ProjectionFactoryUtil.sqlProjection(
+			sql + " as rowsChecksum", new String[] {"rowsChecksum"},
+			new Type[] {Type.LONG});
+	}
+
+	/**
+	 * Returns the SQL of the checksum of the rows: the sum of a hash of the
+	 * columns of each row, computed with the hash function of the database.
+	 * If the database has no supported hash function and there is a single
+	 * numeric attribute, the sum of its squares is used instead, as the sum
+	 * of the attribute is already aggregated. Returns <code>null</code> in
+	 * any other case.
+	 */
+	protected String getChecksumSql(
+		Model model, Collection<String> attributes, List<String> columns) {
+
+		DBType dbType = DBManagerUtil.getDB().getDBType();
+
+		String columnList = StringUtil.merge(columns, ", ");
+
+		if ((dbType == DBType.MARIADB) || (dbType == DBType.MYSQL)) {
+			return "sum(crc32(concat_ws('|', " + columnList + ")))";
+		}
+
+		if (dbType == DBType.ORACLE) {
+			return "sum(ora_hash(" + StringUtil.merge(columns, " || '|' || ") +
+				"))";
+		}
+
+		if (dbType == DBType.POSTGRESQL) {
+			return "sum(hashtext(concat_ws('|', " + columnList + ")))";
+		}
+
+		if (dbType == DBType.SQLSERVER) {
+			return "sum(cast(checksum(" + columnList + ") as bigint))";
+		}
+
+		if (columns.size() != 1) {
+			return null;
+		}
+
+		Class<?> attributeClass = model.getAttributeClass(
+			attributes.iterator().next());
+
+		if ((attributeClass == null) ||
+			!Number.class.isAssignableFrom(attributeClass)) {
+
+			return null;
+		}
+
+		return "sum(" + columns.get(0) + " * " + columns.get(0) + ")";
+	}
+
+	/**
+	 * Returns the name of the database column of the attribute, or
+	 * <code>null</code> if it is not a column of the table of the model.
+	 */
+	protected String getColumnName(Model model, String attribute) {
+		if ((attribute.indexOf('.') >= 0) || !model.hasAttribute(attribute)) {
+			return null;
+		}
+
+		String sqlCreate = model.getTableInfo().getSqlCreate();
+
+		if (sqlCreate == null) {
+			return null;
+		}
+
+		int start = sqlCreate.indexOf('(');
+		int end = sqlCreate.lastIndexOf(')');
+
+		if ((start < 0) || (end < start)) {
+			return null;
+		}
+
+		for (String column : sqlCreate.substring(start + 1, end).split(",")) {
+			String columnName = column.trim().split(" ")[0];
+
+			if (columnName.equals(attribute) ||
+				columnName.equals(attribute + "_")) {
+
+				return columnName;
+			}
+		}
+
+		return null;
+	}
+
+	/**
+	 * Returns the data moved to a columnar data store if the columnar storage
+	 * is enabled.
+	 */
+	protected Map<Long, Data> getColumnarData(
+		Map<String, Map<Long, List<Data>>> queryCache,
+		Map<Long, Data> dataMap) {
+
+		if (!PortletPropsValues.DATA_COLUMNAR_ENABLED || dataMap.isEmpty()) {
+			return dataMap;
+		}
+
+		return ColumnarDataStore.toColumnar(
+			dataMap, getValueDictionary(queryCache));
+	}
+
+	/**
+	 * Adds the related model data to a page of data and reduces its rows to
+	 * fingerprints. If <code>paginated</code> is <code>true</code>, only the
+	 * related data of the rows of the page is queried.
+	 */
+	protected List<DataFingerprint> getFingerprints(
+			Map<String, Map<Long, List<Data>>> queryCache, Model model,
+			Criterion criterion, Map<Long, Data> dataPage, boolean paginated)
+		throws Exception {
+
+		List<DataFingerprint> fingerprints = new ArrayList<DataFingerprint>(
+			dataPage.size());
+
+		if (dataPage.isEmpty()) {
+			return fingerprints;
+		}
+
+		addRelatedModelData(queryCache, dataPage, model, criterion, paginated);
+
+		List<String> keyAttributes = model.getKeyAttributes();
+		List<String> exactAttributes =
+			StagingCheckerComparisonUtil.getExactAttributes(model);
+
+		for (Data data : dataPage.values()) {
+			fingerprints.add(
+				StagingCheckerFingerprintUtil.getFingerprint(
+					data, keyAttributes, exactAttributes));
+		}
+
+		return fingerprints;
+	}
+
+	/**
+	 * Returns the related data of the rows of the data map, looking up the
+	 * values of their source attribute. It is used when the related data of
+	 * all the rows can not be kept in the query cache, or when the rows are a
+	 * page and the related data can not be limited to a range of values.
+	 */
+	protected Map<Long, List<Data>> getDataWithDuplicates(
+			Map<Long, Data> dataMap, String mappingSource, Model relatedModel,
+			List<String> relatedAttributes, String mappingRelated,
+			Criterion relatedCriterion)
+		throws Exception {
+
+		List<Long> values = getSourceValues(dataMap, mappingSource);
+
+		if (values == null) {
+			return Query.getDataWithDuplicates(
+				relatedModel, relatedAttributes.toArray(new String[0]),
+				mappingRelated, relatedCriterion);
+		}
+
+		return getDataWithDuplicates(
+			relatedModel, relatedAttributes, mappingRelated, relatedCriterion,
+			values);
+	}
+
+	/**
+	 * Returns the values of the source attribute to look up in the related
+	 * model, or <code>null</code> if reading all the related rows matching the
+	 * criterion is expected to be cheaper. The values are looked up if their
+	 * number is small compared to the number of related rows, and if they can
+	 * be converted to the class of the related attribute. The number of
+	 * related rows without criterion is only counted once for each check.
+	 */
+	protected List<Long> getLookupValues(
+			Map<String, Map<Long, List<Data>>> queryCache,
+			Map<Long, Data> dataMap, String mappingSource, Model relatedModel,
+			String mappingRelated, Criterion relatedCriterion)
+		throws Exception {
+
+		List<Long> values = getSourceValues(dataMap, mappingSource);
+
+		if ((values == null) || values.isEmpty()) {
+			return values;
+		}
+
+		if (getAttributeValues(relatedModel, mappingRelated, values) == null) {
+			return null;
+		}
+
+		long relatedCount = getRelatedCount(
+			queryCache, relatedModel, relatedCriterion);
+
+		if (relatedCount <= 0) {
+			return null;
+		}
+
+		double ratio = (double)values.size() / relatedCount;
+
+		if (_log.isDebugEnabled()) {
+			_log.debug(
+				"Related model " + relatedModel.getName() + ": " +
+					values.size() + " values to look up in " + relatedCount +
+						" rows");
+		}
+
+		if (ratio > PortletPropsValues.RELATED_LOOKUP_MAX_RATIO) {
+			return null;
+		}
+
+		return values;
+	}
+
+	@SuppressWarnings("unchecked")
+	protected List<String> getList(Map<String, Object> rdtq, String key) {
+		List<String> list = (List<String>)rdtq.get(key);
+
+		if (list == null) {
+			return Collections.emptyList();
+		}
+
+		return list;
+	}
+
+	protected List<?> getPageValues(
+			Model model, Criterion criterion, String orderAttribute,
+			Object lastValue, int pageSize)
+		throws Exception {
+
+		CheckExecutor.checkCancelled();
+
+		DynamicQuery dynamicQuery = model.getService().newDynamicQuery();
+
+		if (criterion != null) {
+			dynamicQuery.add(criterion);
+		}
+
+		if (lastValue != null) {
+			dynamicQuery.add(model.getProperty(orderAttribute).gt(lastValue));
+		}
+
+		dynamicQuery.setProjection(
+			model.getPropertyProjection(orderAttribute));
+
+		dynamicQuery.addOrder(OrderFactoryUtil.asc(orderAttribute));
+
+		dynamicQuery.setLimit(0, pageSize);
+
+		long startTime = System.currentTimeMillis();
+
+		List<?> pageValues = model.getService().executeDynamicQuery(
+			dynamicQuery);
+
+		CheckExecutor.recordQueryLatency(
+			System.currentTimeMillis() - startTime);
+
+		return pageValues;
+	}
+
+	/**
+	 * Returns a criterion that restricts the related attribute to the range of
+	 * values of the source attribute in the data map, or <code>null</code> if
+	 * the values are not numeric or the bounds can not be converted to the
+	 * class of the related attribute.
+	 */
+	protected Criterion getRangeCriterion(
+		Map<Long, Data> dataMap, String mappingSource, Model relatedModel,
+		String mappingRelated) {
+
+		Class<?> attributeClass = relatedModel.getAttributeClass(
+			mappingRelated);
+
+		if ((attributeClass != null) &&
+			!Number.class.isAssignableFrom(attributeClass)) {
+
+			return null;
+		}
+
+		long minValue = Long.MAX_VALUE;
+		long maxValue = Long.MIN_VALUE;
+
+		for (Data data : dataMap.values()) {
+			Object value = data.get(mappingSource);
+
+			if (!(value instanceof Number)) {
+				return null;
+			}
+
+			long longValue = ((Number)value).longValue();
+
+			minValue = Math.min(minValue, longValue);
+			maxValue = Math.max(maxValue, longValue);
+		}
+
+		if (minValue > maxValue) {
+			return null;
+		}
+
+		List<Object> bounds = getAttributeValues(
+			relatedModel, mappingRelated, Arrays.asList(minValue, maxValue));
+
+		if ((bounds == null) ||
+			(((Number)bounds.get(0)).longValue() != minValue) ||
+			(((Number)bounds.get(1)).longValue() != maxValue)) {
+
+			return null;
+		}
+
+		return relatedModel.getProperty(mappingRelated).between(
+			bounds.get(0), bounds.get(1));
+	}
+
+	/**
+	 * Returns the number of rows of the related model matching the criterion.
+	 * The number of rows without criterion is kept in the query cache, so the
+	 * whole table is only counted once for each check.
+	 */
+	protected long getRelatedCount(
+			Map<String, Map<Long, List<Data>>> queryCache,
+			final Model relatedModel, Criterion relatedCriterion)
+		throws Exception {
+
+		if ((relatedCriterion != null) ||
+			!(queryCache instanceof StagingCheckerQueryCache)) {
+
+			return relatedModel.count(relatedCriterion);
+		}
+
+		StagingCheckerQueryCache stagingCheckerQueryCache =
+			(StagingCheckerQueryCache)queryCache;
+
+		return stagingCheckerQueryCache.getCount(
+			relatedModel.getName(),
+			new Callable<Long>() {
+
+				@Override
+				public Long call() throws Exception {
+					return relatedModel.count(null);
+				}
+
+			});
+	}
+
+	/**
+	 * Returns the related data to query for the model. If only the key is
+	 * needed, only the related data that returns key attributes, and the
+	 * related data they are mapped from, is queried.
+	 */
+	protected List<Map<String, Object>> getRelatedDataToQuery(Model model) {
+		List<Map<String, Object>> relatedDataToQueryList =
+			ConfigurationUtil.getRelatedDataToQuery(model);
+
+		if (!keyAttributesOnly) {
+			return relatedDataToQueryList;
+		}
+
+		Set<String> requiredAttributes = new HashSet<String>(
+			model.getKeyAttributes());
+
+		LinkedList<Map<String, Object>> prunedRelatedDataToQueryList =
+			new LinkedList<Map<String, Object>>();
+
+		for (int i = relatedDataToQueryList.size() - 1; i >= 0; i--) {
+			Map<String, Object> rdtq = relatedDataToQueryList.get(i);
+
+			if (Collections.disjoint(
+					getList(rdtq, "attributesToQuery"), requiredAttributes)) {
+
+				continue;
+			}
+
+			prunedRelatedDataToQueryList.addFirst(rdtq);
+
+			requiredAttributes.addAll(getList(rdtq, "mappingsSource"));
+		}
+
+		return prunedRelatedDataToQueryList;
+	}
+
+	/**
+	 * Returns the distinct values of the source attribute of the rows, or
+	 * <code>null</code> if any of them is not a number.
+	 */
+	protected List<Long> getSourceValues(
+		Map<Long, Data> dataMap, String mappingSource) {
+
+		Set<Long> values = new LinkedHashSet<Long>();
+
+		for (Data data : dataMap.values()) {
+			Object value = data.get(mappingSource);
+
+			if (value == null) {
+				continue;
+			}
+
+			if (!(value instanceof Number)) {
+				return null;
+			}
+
+			values.add(((Number)value).longValue());
+		}
+
+		return new ArrayList<Long>(values);
+	}
+
+	/**
+	 * Returns the value dictionary of the check process, kept by its query
+	 * cache, or <code>null</code> if there is none.
+	 */
+	protected StagingCheckerValueDictionary getValueDictionary(
+		Map<String, Map<Long, List<Data>>> queryCache) {
+
+		if (!(queryCache instanceof StagingCheckerQueryCache)) {
+			return null;
+		}
+
+		return ((StagingCheckerQueryCache)queryCache).getValueDictionary();
+	}
+
+	/**
+	 * Returns <code>true</code> if the data of the models is read in pages,
+	 * so the related data has to be limited to the rows of each page.
+	 */
+	protected boolean isPaginated() {
+		if (PortletPropsValues.COMPARISON_SORT_MERGE_ENABLED ||
+			PortletPropsValues.FETCH_PAGINATION_ENABLED) {
+
+			return true;
+		}
+
+		return false;
+	}
+
+	private static final int PRIMARY_KEYS_CHUNK_SIZE = 1000;
+
 	private static Log _log = LogFactoryUtil.getLog(
 		StagingCheckerQueryHelper.class);
 
+	private boolean keyAttributesOnly = false;
+
 }
\ No newline at end of file
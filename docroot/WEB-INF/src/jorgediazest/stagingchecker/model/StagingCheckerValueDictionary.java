@@ -0,0 +1,210 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package jorgediazest.stagingchecker.model;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Dictionary of the attribute values of the rows kept by a check process.
+ * Equal values are replaced by a single canonical instance, so repeated
+ * strings and repeated lists of values, such as the permissions of the rows
+ * of a site, are kept only once. Only immutable values and collections and
+ * arrays of them are added to the dictionary.
+ *
+ * @author Jorge Díaz
+ */
+public class StagingCheckerValueDictionary {
+
+	/**
+	 * @param maxEntries maximum number of values of the dictionary, the
+	 *        values found once the dictionary is full are kept as they are
+	 */
+	public StagingCheckerValueDictionary(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Returns the canonical instance of the value, adding the value to the
+	 * dictionary if it is not there yet.
+	 *
+	 * @param cacheData whether the value is kept by the query cache or by
+	 *        the data of a check task, to report the memory saved by each
+	 */
+	public Object getCanonicalValue(Object value, boolean cacheData) {
+		if (!isCanonicalizable(value)) {
+			return value;
+		}
+
+		Object key = value;
+
+		if (value instanceof Object[]) {
+			key = new ArrayKey((Object[])value);
+		}
+
+		getCounter(cacheData, LOOKUPS).incrementAndGet();
+
+		Object canonicalValue = values.get(key);
+
+		if (canonicalValue == null) {
+			if (values.size() >= maxEntries) {
+				return value;
+			}
+
+			canonicalValue = values.putIfAbsent(key, value);
+
+			if (canonicalValue == null) {
+				return value;
+			}
+		}
+
+		if ((canonicalValue == value) ||
+			(canonicalValue.getClass() != value.getClass())) {
+
+			return value;
+		}
+
+		getCounter(cacheData, HITS).incrementAndGet();
+		getCounter(cacheData, SAVED_SIZE).addAndGet(
+			StagingCheckerQueryCache.estimateValueSize(value));
+
+		return canonicalValue;
+	}
+
+	public long getHits(boolean cacheData) {
+		return getCounter(cacheData, HITS).get();
+	}
+
+	public long getLookups(boolean cacheData) {
+		return getCounter(cacheData, LOOKUPS).get();
+	}
+
+	/**
+	 * Returns the estimated memory saved replacing values by their canonical
+	 * instance, in bytes.
+	 */
+	public long getSavedSize(boolean cacheData) {
+		return getCounter(cacheData, SAVED_SIZE).get();
+	}
+
+	public int size() {
+		return values.size();
+	}
+
+	@Override
+	public String toString() {
+		return "entries=" + values.size() + ", query cache: " +
+			toString(true) + ", check tasks: " + toString(false);
+	}
+
+	protected static boolean isCanonicalizable(Object value) {
+		if ((value instanceof Boolean) || (value instanceof Double) ||
+			(value instanceof Integer) || (value instanceof Long) ||
+			(value instanceof Short) || (value instanceof String) ||
+			(value instanceof UUID)) {
+
+			return true;
+		}
+
+		if (value instanceof Collection) {
+			for (Object element : (Collection<?>)value) {
+				if ((element != null) && !isCanonicalizable(element)) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		if (value instanceof Object[]) {
+			for (Object element : (Object[])value) {
+				if ((element != null) && !isCanonicalizable(element)) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		return false;
+	}
+
+	protected AtomicLong getCounter(boolean cacheData, int counter) {
+		if (cacheData) {
+			return cacheCounters[counter];
+		}
+
+		return taskCounters[counter];
+	}
+
+	protected String toString(boolean cacheData) {
+		long hits = getHits(cacheData);
+		long lookups = getLookups(cacheData);
+
+		long hitRate = 0;
+
+		if (lookups > 0) {
+			hitRate = (100 * hits) / lookups;
+		}
+
+		return "lookups=" + lookups + ", hits=" + hits + " (" + hitRate +
+			"%), saved size=" + getSavedSize(cacheData) + " bytes";
+	}
+
+	protected static class ArrayKey {
+
+		public ArrayKey(Object[] array) {
+			this.array = array;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof ArrayKey)) {
+				return false;
+			}
+
+			return Arrays.deepEquals(array, ((ArrayKey)obj).array);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.deepHashCode(array);
+		}
+
+		private Object[] array;
+
+	}
+
+	private static final int HITS = 0;
+
+	private static final int LOOKUPS = 1;
+
+	private static final int SAVED_SIZE = 2;
+
+	private AtomicLong[] cacheCounters = {
+		new AtomicLong(), new AtomicLong(), new AtomicLong()
+	};
+	private int maxEntries;
+	private AtomicLong[] taskCounters = {
+		new AtomicLong(), new AtomicLong(), new AtomicLong()
+	};
+	private ConcurrentMap<Object, Object> values =
+		new ConcurrentHashMap<Object, Object>();
+
+}
\ No newline at end of file
@@ -0,0 +1,30 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+package jorgediazest.stagingchecker.model;
+
+/**
+ * Thrown when the rows returned by the database are not sorted in the same
+ * order as the key attribute comparator of the model.
+ *
+ * @author Jorge Díaz
+ */
+public class UnsortedDataException extends Exception {
+
+	public UnsortedDataException(String message) {
+		super(message);
+	}
+
+	private static final long serialVersionUID = 1L;
+
+}
\ No newline at end of file
@@ -0,0 +1,196 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package jorgediazest.stagingchecker.output;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import jorgediazest.stagingchecker.executor.AdaptiveConcurrencyLimiter;
+import jorgediazest.stagingchecker.executor.CheckExecutor;
+import jorgediazest.stagingchecker.model.StagingCheckerGroupSnapshot;
+
+import jorgediazest.util.data.Comparison;
+
+/**
+ * Incremental sink of the results of a check execution. Results are added as
+ * soon as each group and model task finishes, so they can be shown while the
+ * check is still running.
+ *
+ * @author Jorge Díaz
+ */
+public class CheckProgress {
+
+	public CheckProgress() {
+		startTime = System.currentTimeMillis();
+	}
+
+	public synchronized void addGroupSnapshot(
+		long companyId, StagingCheckerGroupSnapshot groupSnapshot) {
+
+		groupSnapshots.put(companyId, groupSnapshot);
+	}
+
+	public synchronized void addResult(
+		long companyId, long groupId, Comparison comparison) {
+
+		completedTasks++;
+
+		if (comparison != null) {
+			results.add(new ProgressResult(companyId, groupId, comparison));
+		}
+	}
+
+	public synchronized void addSubmittedTasks(int tasks) {
+		submittedTasks += tasks;
+	}
+
+	/**
+	 * Cancels the check. The running execution stops its outstanding tasks
+	 * and the results already added are kept.
+	 */
+	public synchronized void cancel() {
+		cancelled = true;
+
+		if (checkExecutor != null) {
+			checkExecutor.cancel();
+		}
+	}
+
+	public synchronized int getCompletedTasks() {
+		return completedTasks;
+	}
+
+	public synchronized StagingCheckerGroupSnapshot getGroupSnapshot(
+		long companyId) {
+
+		return groupSnapshots.get(companyId);
+	}
+
+	/**
+	 * Returns the group metadata of each checked company, by companyId.
+	 */
+	public synchronized Map<Long, StagingCheckerGroupSnapshot>
+		getGroupSnapshots() {
+
+		return new HashMap<Long, StagingCheckerGroupSnapshot>(groupSnapshots);
+	}
+
+	/**
+	 * Returns the concurrency limiter of the last company checked, or
+	 * <code>null</code> if adaptive concurrency is disabled.
+	 */
+	public synchronized AdaptiveConcurrencyLimiter getLimiter() {
+		return limiter;
+	}
+
+	/**
+	 * Returns the results added after the first <code>start</code> ones.
+	 */
+	public synchronized List<ProgressResult> getResults(int start) {
+		if (start >= results.size()) {
+			return Collections.emptyList();
+		}
+
+		return new ArrayList<ProgressResult>(
+			results.subList(Math.max(0, start), results.size()));
+	}
+
+	public synchronized int getResultsCount() {
+		return results.size();
+	}
+
+	public long getStartTime() {
+		return startTime;
+	}
+
+	public synchronized int getSubmittedTasks() {
+		return submittedTasks;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	public boolean isFinished() {
+		return finished;
+	}
+
+	/**
+	 * Sets the executor of the company being checked, so it can be cancelled.
+	 */
+	public synchronized void setCheckExecutor(CheckExecutor checkExecutor) {
+		this.checkExecutor = checkExecutor;
+
+		if (checkExecutor == null) {
+			return;
+		}
+
+		if (checkExecutor.getLimiter() != null) {
+			limiter = checkExecutor.getLimiter();
+		}
+
+		if (cancelled) {
+			checkExecutor.cancel();
+		}
+	}
+
+	public void setFinished(boolean finished) {
+		this.finished = finished;
+	}
+
+	public static class ProgressResult {
+
+		public ProgressResult(
+			long companyId, long groupId, Comparison comparison) {
+
+			this.companyId = companyId;
+			this.groupId = groupId;
+			this.comparison = comparison;
+		}
+
+		public long getCompanyId() {
+			return companyId;
+		}
+
+		public Comparison getComparison() {
+			return comparison;
+		}
+
+		public long getGroupId() {
+			return groupId;
+		}
+
+		private final long companyId;
+		private final Comparison comparison;
+		private final long groupId;
+
+	}
+
+	private volatile boolean cancelled = false;
+	private CheckExecutor checkExecutor = null;
+	private int completedTasks = 0;
+	private volatile boolean finished = false;
+	private final Map<Long, StagingCheckerGroupSnapshot> groupSnapshots =
+		new HashMap<Long, StagingCheckerGroupSnapshot>();
+	private AdaptiveConcurrencyLimiter limiter = null;
+	private final List<ProgressResult> results =
+		new ArrayList<ProgressResult>();
+	private final long startTime;
+	private int submittedTasks = 0;
+
+}
\ No newline at end of file
@@ -0,0 +1,52 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package jorgediazest.stagingchecker.output;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Keeps the progress of the last check execution launched by each user.
+ *
+ * @author Jorge Díaz
+ */
+public class CheckProgressUtil {
+
+	public static CheckProgress getCheckProgress(long userId) {
+		return checkProgressMap.get(userId);
+	}
+
+	/**
+	 * Removes the progress of the user if it is still the given one, so the
+	 * results it keeps can be released once they are no longer needed.
+	 */
+	public static void removeCheckProgress(
+		long userId, CheckProgress checkProgress) {
+
+		if (checkProgress != null) {
+			checkProgressMap.remove(userId, checkProgress);
+		}
+	}
+
+	public static void setCheckProgress(
+		long userId, CheckProgress checkProgress) {
+
+		checkProgressMap.put(userId, checkProgress);
+	}
+
+	private static ConcurrentMap<Long, CheckProgress> checkProgressMap =
+		new ConcurrentHashMap<Long, CheckProgress>();
+
+}
\ No newline at end of file
@@ -17,6 +17,9 @@ package jorgediazest.stagingchecker.output;
 import com.liferay.portal.kernel.dao.search.ResultRow;
 import com.liferay.portal.kernel.dao.search.SearchContainer;
 import com.liferay.portal.kernel.exception.SystemException;
+import com.liferay.portal.kernel.json.JSONArray;
+import com.liferay.portal.kernel.json.JSONFactoryUtil;
+import com.liferay.portal.kernel.json.JSONObject;
 import com.liferay.portal.kernel.language.LanguageUtil;
 import com.liferay.portal.kernel.log.Log;
 import com.liferay.portal.kernel.log.LogFactoryUtil;
@@ -42,8 +45,14 @@ import javax.portlet.PortletURL;
 import javax.portlet.RenderRequest;
 
 import jorgediazest.stagingchecker.ExecutionMode;
+import jorgediazest.stagingchecker.executor.AdaptiveConcurrencyLimiter;
+import jorgediazest.stagingchecker.model.AggregateComparison;
+import jorgediazest.stagingchecker.model.StagingCheckerComparisonUtil;
+import jorgediazest.stagingchecker.model.StagingCheckerGroupSnapshot;
+import jorgediazest.stagingchecker.output.CheckProgress.ProgressResult;
 
 import jorgediazest.util.data.Comparison;
+import jorgediazest.util.data.Data;
 import jorgediazest.util.output.OutputUtils;
 
 /**
@@ -66,6 +75,9 @@ public class StagingCheckerOutput {
 			renderRequest.getAttribute("companyResultDataMap");
 		Map<Company, String> companyError =
 			(Map<Company, String>) renderRequest.getAttribute("companyError");
+		Map<Long, StagingCheckerGroupSnapshot> groupSnapshots =
+			(Map<Long, StagingCheckerGroupSnapshot>)
+			renderRequest.getAttribute("groupSnapshots");
 
 		if ((executionMode == null)||(companyProcessTime == null)||
 			(companyResultDataMap == null)) {
@@ -75,7 +87,8 @@ public class StagingCheckerOutput {
 
 		return generateCSVOutput(
 			portletConfig, title, renderRequest.getLocale(), true,
-			companyProcessTime, companyResultDataMap, companyError);
+			companyProcessTime, companyResultDataMap, companyError,
+			groupSnapshots);
 	}
 
 	public static List<String> generateCSVOutput(
@@ -84,6 +97,18 @@ public class StagingCheckerOutput {
 		Map<Company, Map<Long, List<Comparison>>> companyResultDataMap,
 		Map<Company, String> companyError) {
 
+		return generateCSVOutput(
+			portletConfig, title, locale, groupBySite, companyProcessTime,
+			companyResultDataMap, companyError, null);
+	}
+
+	public static List<String> generateCSVOutput(
+		PortletConfig portletConfig, String title, Locale locale,
+		boolean groupBySite, Map<Company, Long> companyProcessTime,
+		Map<Company, Map<Long, List<Comparison>>> companyResultDataMap,
+		Map<Company, String> companyError,
+		Map<Long, StagingCheckerGroupSnapshot> groupSnapshots) {
+
 		List<String> out = new ArrayList<String>();
 
 		ResourceBundle resourceBundle = portletConfig.getResourceBundle(
@@ -124,6 +149,13 @@ public class StagingCheckerOutput {
 				Map<Long, List<Comparison>> resultDataMap =
 					companyResultDataMap.get(companyEntry.getKey());
 
+				StagingCheckerGroupSnapshot groupSnapshot = null;
+
+				if (groupSnapshots != null) {
+					groupSnapshot = groupSnapshots.get(
+						companyEntry.getKey().getCompanyId());
+				}
+
 				int numberOfRows = 0;
 
 				for (
@@ -135,11 +167,10 @@ public class StagingCheckerOutput {
 
 					if (groupBySite) {
 						try {
-							Group group =
-								GroupLocalServiceUtil.fetchGroup(
-									entry.getKey());
+							String groupName = getGroupName(
+								groupSnapshot, entry.getKey());
 
-							if (group == null) {
+							if (groupName == null) {
 								groupIdOutput = LanguageUtil.get(
 									resourceBundle,
 									"output.not-applicable-groupid");
@@ -148,8 +179,8 @@ public class StagingCheckerOutput {
 									"output.not-applicable-groupname");
 							}
 							else {
-								groupIdOutput = "" + group.getGroupId();
-								groupNameOutput = group.getName();
+								groupIdOutput = "" + entry.getKey();
+								groupNameOutput = groupName;
 							}
 						}
 						catch (Exception e) {
@@ -160,14 +191,32 @@ public class StagingCheckerOutput {
 					for (Comparison comp : entry.getValue()) {
 						String lineError = OutputUtils.generateCSVRow(
 							resourceBundle, comp, companyOutput, groupIdOutput,
-							groupNameOutput, "error", locale, comp.getError(),
-							-1);
+							groupNameOutput,
+							StagingCheckerComparisonUtil.getErrorType(comp),
+							locale, comp.getError(), -1);
 
 						if (lineError != null) {
 							numberOfRows++;
 							out.add(lineError);
 						}
 
+						if (comp instanceof AggregateComparison) {
+							AggregateComparison aggregateComp =
+								(AggregateComparison)comp;
+
+							String line = OutputUtils.generateCSVRow(
+								resourceBundle, comp, companyOutput,
+								groupIdOutput, groupNameOutput,
+								aggregateComp.getOutputType(), locale,
+								aggregateComp.getMessage(),
+								aggregateComp.getRowCount());
+
+							if (line != null) {
+								numberOfRows++;
+								out.add(line);
+							}
+						}
+
 						for (String type : comp.getOutputTypes()) {
 							List<String> attributeList =
 								comp.getModel().getKeyAttributes();
@@ -214,11 +263,112 @@ public class StagingCheckerOutput {
 		return out;
 	}
 
+	public static JSONObject generateProgressJSON(
+		PortletConfig portletConfig, Locale locale,
+		CheckProgress checkProgress, int start) {
+
+		JSONObject jsonObject = JSONFactoryUtil.createJSONObject();
+
+		if (checkProgress == null) {
+			jsonObject.put("finished", true);
+
+			return jsonObject;
+		}
+
+		ResourceBundle resourceBundle = portletConfig.getResourceBundle(
+				locale);
+
+		Map<Long, StagingCheckerGroupSnapshot> groupSnapshots =
+			checkProgress.getGroupSnapshots();
+
+		jsonObject.put("completedTasks", checkProgress.getCompletedTasks());
+
+		AdaptiveConcurrencyLimiter limiter = checkProgress.getLimiter();
+
+		if (limiter != null) {
+			jsonObject.put("concurrency", getLimiterJSON(limiter));
+		}
+
+		jsonObject.put("finished", checkProgress.isFinished());
+		jsonObject.put("submittedTasks", checkProgress.getSubmittedTasks());
+
+		List<ProgressResult> results = checkProgress.getResults(start);
+
+		JSONArray resultsJSONArray = JSONFactoryUtil.createJSONArray();
+
+		for (ProgressResult result : results) {
+			Comparison comp = result.getComparison();
+
+			String groupNameOutput = getGroupName(
+				groupSnapshots.get(result.getCompanyId()),
+				result.getGroupId());
+
+			if (groupNameOutput == null) {
+				groupNameOutput = LanguageUtil.get(
+					resourceBundle, "output.not-applicable-groupname");
+			}
+
+			if (Validator.isNotNull(comp.getError())) {
+				JSONObject rowJSONObject = getProgressRowJSON(
+					resourceBundle, locale, result, groupNameOutput, comp,
+					StagingCheckerComparisonUtil.getErrorType(comp));
+
+				rowJSONObject.put("error", comp.getError());
+
+				resultsJSONArray.put(rowJSONObject);
+			}
+
+			if (comp instanceof AggregateComparison) {
+				AggregateComparison aggregateComp = (AggregateComparison)comp;
+
+				JSONObject rowJSONObject = getProgressRowJSON(
+					resourceBundle, locale, result, groupNameOutput, comp,
+					aggregateComp.getOutputType());
+
+				rowJSONObject.put("count", aggregateComp.getRowCount());
+
+				resultsJSONArray.put(rowJSONObject);
+			}
+
+			for (String type : comp.getOutputTypes()) {
+				Set<Data> data = comp.getData(type);
+
+				if ((data == null) || data.isEmpty()) {
+					continue;
+				}
+
+				JSONObject rowJSONObject = getProgressRowJSON(
+					resourceBundle, locale, result, groupNameOutput, comp,
+					type);
+
+				rowJSONObject.put("count", data.size());
+
+				resultsJSONArray.put(rowJSONObject);
+			}
+		}
+
+		jsonObject.put("next", Math.max(0, start) + results.size());
+		jsonObject.put("results", resultsJSONArray);
+
+		return jsonObject;
+	}
+
 	public static SearchContainer<Comparison> generateSearchContainer(
 		PortletConfig portletConfig, RenderRequest renderRequest,
 		boolean groupBySite, Map<Long, List<Comparison>> resultDataMap,
 		PortletURL serverURL) throws SystemException {
 
+		return generateSearchContainer(
+			portletConfig, renderRequest, groupBySite, resultDataMap,
+			serverURL, null);
+	}
+
+	public static SearchContainer<Comparison> generateSearchContainer(
+		PortletConfig portletConfig, RenderRequest renderRequest,
+		boolean groupBySite, Map<Long, List<Comparison>> resultDataMap,
+		PortletURL serverURL, StagingCheckerGroupSnapshot groupSnapshot)
+		throws SystemException {
+
 		Locale locale = renderRequest.getLocale();
 
 		ResourceBundle resourceBundle = portletConfig.getResourceBundle(
@@ -256,9 +406,9 @@ public class StagingCheckerOutput {
 			String groupNameOutput = null;
 
 			if (groupBySite) {
-				Group group = GroupLocalServiceUtil.fetchGroup(entry.getKey());
+				String groupName = getGroupName(groupSnapshot, entry.getKey());
 
-				if (group == null) {
+				if (groupName == null) {
 					groupIdOutput = LanguageUtil.get(
 						resourceBundle, "output.not-applicable-groupid");
 					groupNameOutput = LanguageUtil.get(
@@ -266,8 +416,8 @@ public class StagingCheckerOutput {
 						"output.not-applicable-groupname");
 				}
 				else {
-					groupIdOutput = "" + group.getGroupId();
-					groupNameOutput = group.getName();
+					groupIdOutput = "" + entry.getKey();
+					groupNameOutput = groupName;
 				}
 			}
 
@@ -289,13 +439,30 @@ public class StagingCheckerOutput {
 			for (Comparison comp : entry.getValue()) {
 				ResultRow rowError = OutputUtils.generateSearchContainerRow(
 					resourceBundle, comp, groupIdOutput, groupNameOutput,
-					"error", locale, numberOfRows, comp.getError());
+					StagingCheckerComparisonUtil.getErrorType(comp), locale,
+					numberOfRows, comp.getError());
 
 				if (rowError != null) {
 					numberOfRows++;
 					resultRows.add(rowError);
 				}
 
+				if (comp instanceof AggregateComparison) {
+					AggregateComparison aggregateComp =
+						(AggregateComparison)comp;
+
+					ResultRow row = OutputUtils.generateSearchContainerRow(
+						resourceBundle, comp, groupIdOutput, groupNameOutput,
+						aggregateComp.getOutputType(), locale, numberOfRows,
+						aggregateComp.getMessage(),
+						aggregateComp.getRowCount());
+
+					if (row != null) {
+						numberOfRows++;
+						resultRows.add(row);
+					}
+				}
+
 				for (String type : comp.getOutputTypes()) {
 					int maxSize = 10;
 
@@ -319,4 +486,60 @@ public class StagingCheckerOutput {
 		return searchContainer;
 	}
 
+	/**
+	 * Returns the name of the group, read from the snapshot of the check if
+	 * available, or <code>null</code> if the group does not exist.
+	 */
+	protected static String getGroupName(
+			StagingCheckerGroupSnapshot groupSnapshot, long groupId)
+		throws SystemException {
+
+		if ((groupSnapshot != null) && groupSnapshot.hasGroup(groupId)) {
+			return groupSnapshot.getGroupName(groupId);
+		}
+
+		Group group = GroupLocalServiceUtil.fetchGroup(groupId);
+
+		if (group == null) {
+			return null;
+		}
+
+		return group.getName();
+	}
+
+	protected static JSONObject getLimiterJSON(
+		AdaptiveConcurrencyLimiter limiter) {
+
+		JSONObject jsonObject = JSONFactoryUtil.createJSONObject();
+
+		jsonObject.put("averageLatency", limiter.getAverageLatency());
+		jsonObject.put("decreases", limiter.getDecreases());
+		jsonObject.put("inFlight", limiter.getInFlight());
+		jsonObject.put("increases", limiter.getIncreases());
+		jsonObject.put("lastLatency", limiter.getLastLatency());
+		jsonObject.put("limit", limiter.getLimit());
+		jsonObject.put("maxLatency", limiter.getMaxLatency());
+		jsonObject.put("maxLimit", limiter.getMaxLimit());
+		jsonObject.put("samples", limiter.getSamples());
+		jsonObject.put("targetLatency", limiter.getTargetLatency());
+
+		return jsonObject;
+	}
+
+	protected static JSONObject getProgressRowJSON(
+		ResourceBundle resourceBundle, Locale locale, ProgressResult result,
+		String groupName, Comparison comp, String type) {
+
+		JSONObject rowJSONObject = JSONFactoryUtil.createJSONObject();
+
+		rowJSONObject.put("companyId", result.getCompanyId());
+		rowJSONObject.put("entityName", comp.getModelDisplayName(locale));
+		rowJSONObject.put("groupId", result.getGroupId());
+		rowJSONObject.put("groupName", groupName);
+		rowJSONObject.put(
+			"status", LanguageUtil.get(resourceBundle, "output." + type));
+
+		return rowJSONObject;
+	}
+
 }
\ No newline at end of file
@@ -14,30 +14,43 @@
 
 package jorgediazest.stagingchecker.portlet;
 
+import com.liferay.portal.kernel.dao.orm.Criterion;
 import com.liferay.portal.kernel.log.Log;
 import com.liferay.portal.kernel.log.LogFactoryUtil;
-import com.liferay.portal.kernel.model.Group;
 import com.liferay.portal.kernel.security.auth.CompanyThreadLocal;
-import com.liferay.portal.kernel.service.GroupLocalServiceUtil;
+import com.liferay.portal.kernel.util.GetterUtil;
+import com.liferay.portal.kernel.util.Validator;
 
 import java.util.ArrayList;
-import java.util.Collection;
-import java.util.HashSet;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 import jorgediazest.stagingchecker.ExecutionMode;
+import jorgediazest.stagingchecker.executor.CheckExecutor;
+import jorgediazest.stagingchecker.executor.CheckExecutorUtil;
+import jorgediazest.stagingchecker.model.AggregateComparison;
+import jorgediazest.stagingchecker.model.BucketDigests;
+import jorgediazest.stagingchecker.model.DataFingerprint;
+import jorgediazest.stagingchecker.model.DataSpillFile;
+import jorgediazest.stagingchecker.model.LongHashMap;
+import jorgediazest.stagingchecker.model.SortedDataReader;
+import jorgediazest.stagingchecker.model.StagingCheckerComparisonUtil;
+import jorgediazest.stagingchecker.model.StagingCheckerCostUtil;
 import jorgediazest.stagingchecker.model.StagingCheckerQueryHelper;
+import jorgediazest.stagingchecker.model.UnsortedDataException;
 import jorgediazest.stagingchecker.util.ConfigurationUtil;
+import jorgediazest.stagingchecker.util.PortletPropsValues;
 
-import jorgediazest.util.comparator.DataComparator;
-import jorgediazest.util.comparator.DataModelComparator;
 import jorgediazest.util.data.Comparison;
-import jorgediazest.util.data.ComparisonUtil;
 import jorgediazest.util.data.Data;
 import jorgediazest.util.model.Model;
+import jorgediazest.util.model.ModelUtil;
 
 /**
  * @author Jorge Díaz
@@ -46,10 +59,12 @@ public class CallableCheckGroupAndModel implements Callable<Comparison> {
 
 	public CallableCheckGroupAndModel(
 		Map<String, Map<Long, List<Data>>> queryCache, long companyId,
-		long groupId, Model model, Set<ExecutionMode> executionMode) {
+		long groupId, long stagingGroupId, Model model,
+		Set<ExecutionMode> executionMode) {
 
 		this.companyId = companyId;
 		this.groupId = groupId;
+		this.stagingGroupId = stagingGroupId;
 		this.queryCache = queryCache;
 		this.model = model;
 		this.executionMode = executionMode;
@@ -57,65 +72,606 @@ public class CallableCheckGroupAndModel implements Callable<Comparison> {
 
 	@Override
 	public Comparison call() throws Exception {
+		try {
+			CompanyThreadLocal.setCompanyId(companyId);
+
+			CheckExecutor.checkCancelled();
+
+			if (_log.isInfoEnabled()) {
+				_log.info(
+					"Model: " + model.getName() + " - CompanyId: " +
+						companyId + " - GroupId: " + groupId);
+			}
+
+			StagingCheckerQueryHelper queryHelper =
+				ConfigurationUtil.getQueryHelper(model).getQueryHelper(
+					executionMode);
+
+			if (PortletPropsValues.COMPARISON_AGGREGATE_ENABLED &&
+				!executionMode.contains(ExecutionMode.SHOW_BOTH_EXACT) &&
+				!executionMode.contains(
+					ExecutionMode.DUMP_ALL_OBJECTS_TO_LOG)) {
+
+				Comparison comparison = getAggregateComparison(queryHelper);
+
+				if (comparison != null) {
+					return comparison;
+				}
+			}
+
+			if (PortletPropsValues.COMPARISON_SORT_MERGE_ENABLED) {
+				Comparison comparison = getSortMergeComparison(queryHelper);
+
+				if (comparison != null) {
+					return comparison;
+				}
+			}
+
+			if (PortletPropsValues.SPILL_THRESHOLD_SIZE > 0) {
+				Comparison comparison = getSpillComparison(queryHelper);
+
+				if (comparison != null) {
+					return comparison;
+				}
+			}
+
+			if (PortletPropsValues.COMPARISON_MERKLE_ENABLED &&
+				!executionMode.contains(ExecutionMode.SHOW_BOTH_EXACT)) {
+
+				Comparison comparison = getMerkleComparison(queryHelper);
+
+				if (comparison != null) {
+					return comparison;
+				}
+			}
+
+			if (PortletPropsValues.COMPARISON_FINGERPRINT_ENABLED &&
+				!executionMode.contains(ExecutionMode.SHOW_BOTH_EXACT)) {
+
+				Comparison comparison = getFingerprintComparison(queryHelper);
+
+				if (comparison != null) {
+					return comparison;
+				}
+			}
+
+			boolean relatedPaired = PortletPropsValues.RELATED_PAIRED_ENABLED;
+
+			CallableFetchGroupData stagingCallable =
+				new CallableFetchGroupData(
+					queryCache, companyId, stagingGroupId, model, queryHelper,
+					!relatedPaired);
+
+			CallableFetchGroupData liveCallable = new CallableFetchGroupData(
+				queryCache, companyId, groupId, model, queryHelper,
+				!relatedPaired);
+
+			Map<Long, Data> stagingDataMap;
+			Map<Long, Data> liveDataMap;
+
+			if (PortletPropsValues.PARALLEL_FETCH_ENABLED) {
+				Future<Map<Long, Data>> stagingFuture =
+					CheckExecutorUtil.submitFetch(stagingCallable);
+
+				try {
+					liveDataMap = liveCallable.call();
+
+					stagingDataMap = CheckExecutorUtil.getResult(stagingFuture);
+				}
+				finally {
+					stagingFuture.cancel(true);
+				}
+			}
+			else {
+				stagingDataMap = stagingCallable.call();
+
+				liveDataMap = liveCallable.call();
+			}
+
+			if (relatedPaired) {
+				addRelatedModelData(queryHelper, stagingDataMap, liveDataMap);
+			}
+
+			StagingCheckerCostUtil.recordCost(
+				model, companyId, groupId,
+				stagingDataMap.size() + liveDataMap.size());
+
+			CheckExecutor.checkCancelled();
+
+			return StagingCheckerComparisonUtil.getComparison(
+				model, executionMode, stagingDataMap.values(),
+				liveDataMap.values());
+		}
+		catch (Throwable t) {
+			return StagingCheckerComparisonUtil.getError(model, t);
+		}
+	}
+
+	public long getGroupId() {
+		return groupId;
+	}
+
+	public Model getModel() {
+		return model;
+	}
+
+	/**
+	 * Adds the related model data of the staging and live rows with a single
+	 * query for each related model, filtered by both group ids.
+	 */
+	protected void addRelatedModelData(
+			StagingCheckerQueryHelper queryHelper,
+			Map<Long, Data> stagingDataMap, Map<Long, Data> liveDataMap)
+		throws Exception {
+
+		Map<Long, Data> dataMap = new LongHashMap<Data>(
+			stagingDataMap.size() + liveDataMap.size());
+
+		dataMap.putAll(stagingDataMap);
+
+		dataMap.putAll(liveDataMap);
+
+		if (dataMap.isEmpty()) {
+			return;
+		}
+
+		List<Long> groupIds = new ArrayList<Long>();
+
+		groupIds.add(stagingGroupId);
+		groupIds.add(groupId);
+
+		queryHelper.addRelatedModelData(queryCache, dataMap, model, groupIds);
+	}
+
+	/**
+	 * Matches the staging and live fingerprints by key and reads the complete
+	 * data of the rows to show.
+	 */
+	protected Comparison compareFingerprints(
+			StagingCheckerQueryHelper queryHelper, Criterion stagingCriterion,
+			Map<String, DataFingerprint> stagingFingerprints,
+			Criterion liveCriterion,
+			Map<String, DataFingerprint> liveFingerprints)
+		throws Exception {
+
+		CheckExecutor.checkCancelled();
+
+		boolean showBothNotExact = executionMode.contains(
+			ExecutionMode.SHOW_BOTH_NOTEXACT);
+		boolean showOnlyStaging = executionMode.contains(
+			ExecutionMode.SHOW_STAGING);
+		boolean showOnlyLive = executionMode.contains(ExecutionMode.SHOW_LIVE);
+
+		List<Long> stagingPrimaryKeys = new ArrayList<Long>();
+		List<Long> livePrimaryKeys = new ArrayList<Long>();
+
+		for (DataFingerprint stagingFingerprint :
+				stagingFingerprints.values()) {
+
+			DataFingerprint liveFingerprint = liveFingerprints.remove(
+				stagingFingerprint.getKey());
+
+			if (liveFingerprint == null) {
+				if (showOnlyStaging) {
+					stagingPrimaryKeys.add(stagingFingerprint.getPrimaryKey());
+				}
+			}
+			else if (showBothNotExact &&
+					 (stagingFingerprint.getHash() !=
+						 liveFingerprint.getHash())) {
+
+				stagingPrimaryKeys.add(stagingFingerprint.getPrimaryKey());
+				livePrimaryKeys.add(liveFingerprint.getPrimaryKey());
+			}
+		}
+
+		if (showOnlyLive) {
+			for (DataFingerprint liveFingerprint : liveFingerprints.values()) {
+				livePrimaryKeys.add(liveFingerprint.getPrimaryKey());
+			}
+		}
+
+		Map<Long, Data> stagingDataMap =
+			queryHelper.getLiferayDataByPrimaryKeys(
+				queryCache, model, stagingCriterion, stagingPrimaryKeys);
+		Map<Long, Data> liveDataMap = queryHelper.getLiferayDataByPrimaryKeys(
+			queryCache, model, liveCriterion, livePrimaryKeys);
+
+		CheckExecutor.checkCancelled();
+
+		return StagingCheckerComparisonUtil.getComparison(
+			model, executionMode, stagingDataMap.values(),
+			liveDataMap.values());
+	}
+
+	/**
+	 * Matches the staging and live fingerprints of the spill files by key and
+	 * reads the complete data of the rows to show. If a file has several
+	 * records with the same key, only the last one is compared, as it is done
+	 * by {@link #compareFingerprints}.
+	 */
+	protected Comparison compareSpillFiles(
+			StagingCheckerQueryHelper queryHelper, Criterion stagingCriterion,
+			DataSpillFile stagingSpillFile, Criterion liveCriterion,
+			DataSpillFile liveSpillFile)
+		throws Exception {
+
+		CheckExecutor.checkCancelled();
 
-		boolean showBothExact = executionMode.contains(
-			ExecutionMode.SHOW_BOTH_EXACT);
 		boolean showBothNotExact = executionMode.contains(
 			ExecutionMode.SHOW_BOTH_NOTEXACT);
 		boolean showOnlyStaging = executionMode.contains(
 			ExecutionMode.SHOW_STAGING);
 		boolean showOnlyLive = executionMode.contains(ExecutionMode.SHOW_LIVE);
 
+		stagingSpillFile.buildIndex();
+		liveSpillFile.buildIndex();
+
+		CheckExecutor.checkCancelled();
+
+		List<Long> stagingPrimaryKeys = new ArrayList<Long>();
+		List<Long> livePrimaryKeys = new ArrayList<Long>();
+
+		int records = 0;
+
+		for (long offset = 0; offset < stagingSpillFile.getSize();
+				offset = stagingSpillFile.getNextOffset(offset)) {
+
+			if ((++records % 10000) == 0) {
+				CheckExecutor.checkCancelled();
+			}
+
+			String key = stagingSpillFile.getKey(offset);
+
+			if (stagingSpillFile.getOffset(key) != offset) {
+				continue;
+			}
+
+			long liveOffset = liveSpillFile.removeFromIndex(key);
+
+			if (liveOffset == -1) {
+				if (showOnlyStaging) {
+					stagingPrimaryKeys.add(
+						stagingSpillFile.getPrimaryKey(offset));
+				}
+			}
+			else if (showBothNotExact &&
+					 (stagingSpillFile.getHash(offset) !=
+						 liveSpillFile.getHash(liveOffset))) {
+
+				stagingPrimaryKeys.add(stagingSpillFile.getPrimaryKey(offset));
+				livePrimaryKeys.add(liveSpillFile.getPrimaryKey(liveOffset));
+			}
+		}
+
+		if (showOnlyLive) {
+			livePrimaryKeys.addAll(liveSpillFile.getIndexedPrimaryKeys());
+		}
+
+		Map<Long, Data> stagingDataMap =
+			queryHelper.getLiferayDataByPrimaryKeys(
+				queryCache, model, stagingCriterion, stagingPrimaryKeys);
+		Map<Long, Data> liveDataMap = queryHelper.getLiferayDataByPrimaryKeys(
+			queryCache, model, liveCriterion, livePrimaryKeys);
+
+		CheckExecutor.checkCancelled();
+
+		return StagingCheckerComparisonUtil.getComparison(
+			model, executionMode, stagingDataMap.values(),
+			liveDataMap.values());
+	}
+
+	/**
+	 * Compares the aggregates of the staging and live rows of the group, or
+	 * returns <code>null</code> if they differ and the rows of the group have
+	 * to be compared. The aggregates only detect the differences if they
+	 * include a checksum of the compared attributes, otherwise
+	 * <code>null</code> is returned without querying them. If the database
+	 * can not compute the checksum, <code>null</code> is also returned.
+	 */
+	protected Comparison getAggregateComparison(
+			StagingCheckerQueryHelper queryHelper)
+		throws Exception {
+
+		if (!queryHelper.isChecksumAggregated(model)) {
+			return null;
+		}
+
+		Criterion stagingCriterion = model.getAttributeCriterion(
+			"groupId", stagingGroupId);
+		Criterion liveCriterion = model.getAttributeCriterion(
+			"groupId", groupId);
+
+		List<Object> stagingAggregates;
+		List<Object> liveAggregates;
+
 		try {
-			CompanyThreadLocal.setCompanyId(companyId);
+			stagingAggregates = queryHelper.getLiferayAggregates(
+				model, stagingCriterion);
+			liveAggregates = queryHelper.getLiferayAggregates(
+				model, liveCriterion);
+		}
+		catch (Exception e) {
+			if (_log.isWarnEnabled()) {
+				_log.warn(
+					"Model: " + model.getName() + " - GroupId: " + groupId +
+						" - Unable to get the aggregates: " + e);
+			}
 
-			if (_log.isInfoEnabled()) {
-				_log.info(
-					"Model: " + model.getName() + " - CompanyId: " +
-						companyId + " - GroupId: " + groupId);
+			return null;
+		}
+
+		if (stagingAggregates.isEmpty() ||
+			!stagingAggregates.equals(liveAggregates)) {
+
+			if (_log.isDebugEnabled()) {
+				_log.debug(
+					"Model: " + model.getName() + " - GroupId: " + groupId +
+						" - Staging aggregates: " + stagingAggregates +
+							" - Live aggregates: " + liveAggregates);
 			}
 
-			Group group = GroupLocalServiceUtil.fetchGroup(groupId);
+			return null;
+		}
 
-			long stagingGroupId = group.getStagingGroup().getGroupId();
+		int rowCount = GetterUtil.getInteger(stagingAggregates.get(0));
 
-			StagingCheckerQueryHelper queryHelper =
-				ConfigurationUtil.getQueryHelper(model);
+		if (rowCount == 0) {
+			return StagingCheckerComparisonUtil.getComparison(
+				model, executionMode, Collections.<Data>emptyList(),
+				Collections.<Data>emptyList());
+		}
+
+		return new AggregateComparison(
+			model, rowCount, "Aggregates: " + stagingAggregates);
+	}
+
+	/**
+	 * Compares the fingerprints of the staging and live rows of the group and
+	 * reads the complete data of the rows to show, or returns
+	 * <code>null</code> if the model has no single primary key.
+	 */
+	protected Comparison getFingerprintComparison(
+			StagingCheckerQueryHelper queryHelper)
+		throws Exception {
+
+		if (Validator.isNull(model.getPrimaryKeyAttribute())) {
+			return null;
+		}
 
-			Map<Long, Data> stagingDataMap = queryHelper.getLiferayData(
-				model, stagingGroupId);
+		Criterion stagingCriterion = model.getAttributeCriterion(
+			"groupId", stagingGroupId);
+		Criterion liveCriterion = model.getAttributeCriterion(
+			"groupId", groupId);
 
-			queryHelper.addRelatedModelData(
-				queryCache, stagingDataMap, model, stagingGroupId);
+		Map<String, DataFingerprint> stagingFingerprints =
+			queryHelper.getLiferayFingerprints(
+				queryCache, model, stagingCriterion);
+		Map<String, DataFingerprint> liveFingerprints =
+			queryHelper.getLiferayFingerprints(
+				queryCache, model, liveCriterion);
 
-			Set<Data> stagingData = new HashSet<Data>(stagingDataMap.values());
+		StagingCheckerCostUtil.recordCost(
+			model, companyId, groupId,
+			stagingFingerprints.size() + liveFingerprints.size());
 
-			Map<Long, Data> liveDataMap = queryHelper.getLiferayData(
-				model, groupId);
+		return compareFingerprints(
+			queryHelper, stagingCriterion, stagingFingerprints, liveCriterion,
+			liveFingerprints);
+	}
+
+	/**
+	 * Compares the bucket digests of the staging and live rows of the group
+	 * and then the fingerprints of the rows of the buckets that differ, or
+	 * returns <code>null</code> if the model has no single primary key.
+	 */
+	protected Comparison getMerkleComparison(
+			StagingCheckerQueryHelper queryHelper)
+		throws Exception {
 
-			queryHelper.addRelatedModelData(
-				queryCache, liveDataMap, model, groupId);
+		if (Validator.isNull(model.getPrimaryKeyAttribute()) ||
+			(PortletPropsValues.COMPARISON_MERKLE_BUCKETS <= 0)) {
 
-			Set<Data> liveData = new HashSet<Data>(liveDataMap.values());
+			return null;
+		}
 
-			Collection<String> exactAttributes =
-				ConfigurationUtil.getExactAttributesToCheck(model);
+		Criterion stagingCriterion = model.getAttributeCriterion(
+			"groupId", stagingGroupId);
+		Criterion liveCriterion = model.getAttributeCriterion(
+			"groupId", groupId);
 
-			List<String> exactAttributesList = new ArrayList<String>(
-				model.getKeyAttributes());
+		BucketDigests stagingBucketDigests =
+			queryHelper.getLiferayBucketDigests(
+				queryCache, model, stagingCriterion,
+				PortletPropsValues.COMPARISON_MERKLE_BUCKETS);
+		BucketDigests liveBucketDigests = queryHelper.getLiferayBucketDigests(
+			queryCache, model, liveCriterion,
+			PortletPropsValues.COMPARISON_MERKLE_BUCKETS);
 
-			exactAttributesList.addAll(exactAttributes);
+		StagingCheckerCostUtil.recordCost(
+			model, companyId, groupId,
+			stagingBucketDigests.getRowCount() +
+				liveBucketDigests.getRowCount());
 
-			DataComparator exactDataComparator = new DataModelComparator(
-				exactAttributesList);
+		BitSet mismatchedBuckets = stagingBucketDigests.getMismatchedBuckets(
+			liveBucketDigests);
 
-			return ComparisonUtil.getComparison(
-				model, exactDataComparator, stagingData, liveData,
-				showBothExact, showBothNotExact, showOnlyStaging, showOnlyLive);
+		if (_log.isDebugEnabled()) {
+			_log.debug(
+				"Model: " + model.getName() + " - GroupId: " + groupId +
+					" - Mismatched buckets: " +
+						mismatchedBuckets.cardinality());
 		}
-		catch (Throwable t) {
-			return ComparisonUtil.getError(model, t);
+
+		Map<String, DataFingerprint> stagingFingerprints =
+			Collections.emptyMap();
+		Map<String, DataFingerprint> liveFingerprints =
+			Collections.emptyMap();
+
+		if (!mismatchedBuckets.isEmpty()) {
+			stagingFingerprints = queryHelper.getLiferayFingerprints(
+				queryCache, model, stagingCriterion, stagingBucketDigests,
+				mismatchedBuckets);
+			liveFingerprints = queryHelper.getLiferayFingerprints(
+				queryCache, model, liveCriterion, liveBucketDigests,
+				mismatchedBuckets);
 		}
+
+		return compareFingerprints(
+			queryHelper, stagingCriterion, stagingFingerprints, liveCriterion,
+			liveFingerprints);
+	}
+
+	/**
+	 * Compares the group merging its staging and live data sorted by key, or
+	 * returns <code>null</code> if the data of the model cannot be read sorted
+	 * by key.
+	 */
+	protected Comparison getSortMergeComparison(
+			StagingCheckerQueryHelper queryHelper)
+		throws Exception {
+
+		String keyAttribute = queryHelper.getSortKeyAttribute(model);
+
+		if ((keyAttribute == null) ||
+			(PortletPropsValues.FETCH_PAGE_SIZE <= 0)) {
+
+			return null;
+		}
+
+		Criterion stagingCriterion = model.getAttributeCriterion(
+			"groupId", stagingGroupId);
+		Criterion liveCriterion = model.getAttributeCriterion(
+			"groupId", groupId);
+
+		if (hasNullKeys(stagingCriterion, keyAttribute) ||
+			hasNullKeys(liveCriterion, keyAttribute)) {
+
+			return null;
+		}
+
+		SortedDataReader stagingReader = new SortedDataReader(
+			queryHelper, queryCache, model, stagingCriterion, keyAttribute,
+			PortletPropsValues.FETCH_PAGE_SIZE);
+		SortedDataReader liveReader = new SortedDataReader(
+			queryHelper, queryCache, model, liveCriterion, keyAttribute,
+			PortletPropsValues.FETCH_PAGE_SIZE);
+
+		try {
+			Comparison comparison =
+				StagingCheckerComparisonUtil.getSortMergeComparison(
+					model, executionMode, stagingReader, liveReader);
+
+			StagingCheckerCostUtil.recordCost(
+				model, companyId, groupId,
+				stagingReader.getCount() + liveReader.getCount());
+
+			return comparison;
+		}
+		catch (UnsortedDataException ude) {
+			if (_log.isWarnEnabled()) {
+				_log.warn(
+					ude.getMessage() + ", comparing group " + groupId +
+						" loading all its data");
+			}
+
+			return null;
+		}
+	}
+
+	/**
+	 * Compares the staging and live rows of the group through spill files if
+	 * their estimated size is above the spill threshold, or returns
+	 * <code>null</code> if they can be kept in memory or the model has no
+	 * single primary key. Only the fingerprints of the rows are written to the
+	 * files, and the files are deleted once compared. The staging and live
+	 * rows are counted by a single query.
+	 */
+	protected Comparison getSpillComparison(
+			StagingCheckerQueryHelper queryHelper)
+		throws Exception {
+
+		if (Validator.isNull(model.getPrimaryKeyAttribute())) {
+			return null;
+		}
+
+		Criterion stagingCriterion = model.getAttributeCriterion(
+			"groupId", stagingGroupId);
+		Criterion liveCriterion = model.getAttributeCriterion(
+			"groupId", groupId);
+
+		long rowCount = model.count(
+			model.getAttributeCriterion(
+				"groupId", Arrays.asList(stagingGroupId, groupId)));
+
+		if (rowCount < 0) {
+			return null;
+		}
+
+		long estimatedSize = rowCount * queryHelper.estimateRowSize(model);
+
+		if (estimatedSize <=
+				(PortletPropsValues.SPILL_THRESHOLD_SIZE * 1024 * 1024)) {
+
+			return null;
+		}
+
+		if (executionMode.contains(ExecutionMode.SHOW_BOTH_EXACT)) {
+			if (_log.isWarnEnabled()) {
+				_log.warn(
+					"Model: " + model.getName() + " - GroupId: " + groupId +
+						" - Estimated size: " + estimatedSize +
+							" bytes, not spilling to disk as the equal rows " +
+								"are shown, comparing in memory");
+			}
+
+			return null;
+		}
+
+		if (_log.isInfoEnabled()) {
+			_log.info(
+				"Model: " + model.getName() + " - GroupId: " + groupId +
+					" - Estimated size: " + estimatedSize +
+						" bytes, spilling to disk");
+		}
+
+		DataSpillFile stagingSpillFile = null;
+		DataSpillFile liveSpillFile = null;
+
+		try {
+			stagingSpillFile = queryHelper.getLiferaySpillFile(
+				queryCache, model, stagingCriterion);
+			liveSpillFile = queryHelper.getLiferaySpillFile(
+				queryCache, model, liveCriterion);
+
+			StagingCheckerCostUtil.recordCost(
+				model, companyId, groupId,
+				stagingSpillFile.getCount() + liveSpillFile.getCount());
+
+			return compareSpillFiles(
+				queryHelper, stagingCriterion, stagingSpillFile, liveCriterion,
+				liveSpillFile);
+		}
+		finally {
+			if (stagingSpillFile != null) {
+				stagingSpillFile.close();
+			}
+
+			if (liveSpillFile != null) {
+				liveSpillFile.close();
+			}
+		}
+	}
+
+	protected boolean hasNullKeys(Criterion criterion, String keyAttribute) {
+		Criterion nullKeyCriterion = ModelUtil.generateConjunctionCriterion(
+			criterion, model.getProperty(keyAttribute).isNull());
+
+		if (model.count(nullKeyCriterion) > 0) {
+			return true;
+		}
+
+		return false;
 	}
 
 	private static Log _log = LogFactoryUtil.getLog(
@@ -126,5 +682,6 @@ public class CallableCheckGroupAndModel implements Callable<Comparison> {
 	private long groupId = -1;
 	private Model model = null;
 	private Map<String, Map<Long, List<Data>>> queryCache = null;
+	private long stagingGroupId = -1;
 
 }
\ No newline at end of file
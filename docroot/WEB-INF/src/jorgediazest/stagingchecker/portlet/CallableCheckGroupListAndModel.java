@@ -0,0 +1,160 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package jorgediazest.stagingchecker.portlet;
+
+import com.liferay.portal.kernel.dao.orm.Criterion;
+import com.liferay.portal.kernel.log.Log;
+import com.liferay.portal.kernel.log.LogFactoryUtil;
+import com.liferay.portal.kernel.security.auth.CompanyThreadLocal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import jorgediazest.stagingchecker.ExecutionMode;
+import jorgediazest.stagingchecker.executor.CheckExecutor;
+import jorgediazest.stagingchecker.model.StagingCheckerComparisonUtil;
+import jorgediazest.stagingchecker.model.StagingCheckerCostUtil;
+import jorgediazest.stagingchecker.model.StagingCheckerQueryHelper;
+import jorgediazest.stagingchecker.util.ConfigurationUtil;
+
+import jorgediazest.util.data.Comparison;
+import jorgediazest.util.data.Data;
+import jorgediazest.util.model.Model;
+
+/**
+ * Checks a model for a chunk of groups, querying the staging and live data of
+ * all of them at once and comparing each group separately.
+ *
+ * @author Jorge Díaz
+ */
+public class CallableCheckGroupListAndModel
+	implements Callable<Map<Long, Comparison>> {
+
+	public CallableCheckGroupListAndModel(
+		Map<String, Map<Long, List<Data>>> queryCache, long companyId,
+		Map<Long, Long> stagingGroupIds, Model model,
+		Set<ExecutionMode> executionMode) {
+
+		this.companyId = companyId;
+		this.stagingGroupIds = stagingGroupIds;
+		this.queryCache = queryCache;
+		this.model = model;
+		this.executionMode = executionMode;
+	}
+
+	@Override
+	public Map<Long, Comparison> call() throws Exception {
+		Map<Long, Comparison> comparisonMap =
+			new LinkedHashMap<Long, Comparison>();
+
+		try {
+			CompanyThreadLocal.setCompanyId(companyId);
+
+			CheckExecutor.checkCancelled();
+
+			if (_log.isInfoEnabled()) {
+				_log.info(
+					"Model: " + model.getName() + " - CompanyId: " +
+						companyId + " - GroupIds: " + stagingGroupIds.keySet());
+			}
+
+			List<Long> groupIds = new ArrayList<Long>(stagingGroupIds.keySet());
+
+			groupIds.addAll(stagingGroupIds.values());
+
+			StagingCheckerQueryHelper queryHelper =
+				ConfigurationUtil.getQueryHelper(model).getQueryHelper(
+					executionMode);
+
+			Criterion criterion = model.getAttributeCriterion(
+				"groupId", groupIds);
+
+			Map<Long, Data> dataMap =
+				queryHelper.getLiferayDataWithRelatedData(
+					queryCache, model, criterion);
+
+			CheckExecutor.checkCancelled();
+
+			Map<Long, Map<Long, Data>> groupDataMap =
+				queryHelper.splitByGroupId(dataMap);
+
+			for (Entry<Long, Long> entry : stagingGroupIds.entrySet()) {
+				Collection<Data> stagingData = getGroupData(
+					groupDataMap, entry.getValue());
+				Collection<Data> liveData = getGroupData(
+					groupDataMap, entry.getKey());
+
+				StagingCheckerCostUtil.recordCost(
+					model, companyId, entry.getKey(),
+					stagingData.size() + liveData.size());
+
+				Comparison comparison =
+					StagingCheckerComparisonUtil.getComparison(
+						model, executionMode, stagingData, liveData);
+
+				comparisonMap.put(entry.getKey(), comparison);
+			}
+		}
+		catch (Throwable t) {
+			Comparison error = StagingCheckerComparisonUtil.getError(
+				model, t);
+
+			for (Long groupId : stagingGroupIds.keySet()) {
+				if (!comparisonMap.containsKey(groupId)) {
+					comparisonMap.put(groupId, error);
+				}
+			}
+		}
+
+		return comparisonMap;
+	}
+
+	public Model getModel() {
+		return model;
+	}
+
+	public Map<Long, Long> getStagingGroupIds() {
+		return stagingGroupIds;
+	}
+
+	protected Collection<Data> getGroupData(
+		Map<Long, Map<Long, Data>> groupDataMap, long groupId) {
+
+		Map<Long, Data> dataMap = groupDataMap.get(groupId);
+
+		if (dataMap == null) {
+			return Collections.emptyList();
+		}
+
+		return dataMap.values();
+	}
+
+	private static Log _log = LogFactoryUtil.getLog(
+		CallableCheckGroupListAndModel.class);
+
+	private long companyId = -1;
+	private Set<ExecutionMode> executionMode = null;
+	private Model model = null;
+	private Map<String, Map<Long, List<Data>>> queryCache = null;
+	private Map<Long, Long> stagingGroupIds = null;
+
+}
\ No newline at end of file
@@ -0,0 +1,83 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package jorgediazest.stagingchecker.portlet;
+
+import com.liferay.portal.kernel.dao.orm.Criterion;
+import com.liferay.portal.kernel.security.auth.CompanyThreadLocal;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+
+import jorgediazest.stagingchecker.model.StagingCheckerQueryHelper;
+
+import jorgediazest.util.data.Data;
+import jorgediazest.util.model.Model;
+
+/**
+ * Retrieves the data of one side (staging or live) of a group, including its
+ * related model data unless it is added later for both sides at once.
+ *
+ * @author Jorge Díaz
+ */
+public class CallableFetchGroupData implements Callable<Map<Long, Data>> {
+
+	public CallableFetchGroupData(
+		Map<String, Map<Long, List<Data>>> queryCache, long companyId,
+		long groupId, Model model, StagingCheckerQueryHelper queryHelper) {
+
+		this(queryCache, companyId, groupId, model, queryHelper, true);
+	}
+
+	/**
+	 * @param relatedData whether to add the related model data, set to
+	 *        <code>false</code> if it is added later to the rows of both sides
+	 *        of the group at once
+	 */
+	public CallableFetchGroupData(
+		Map<String, Map<Long, List<Data>>> queryCache, long companyId,
+		long groupId, Model model, StagingCheckerQueryHelper queryHelper,
+		boolean relatedData) {
+
+		this.companyId = companyId;
+		this.groupId = groupId;
+		this.model = model;
+		this.queryCache = queryCache;
+		this.queryHelper = queryHelper;
+		this.relatedData = relatedData;
+	}
+
+	@Override
+	public Map<Long, Data> call() throws Exception {
+		CompanyThreadLocal.setCompanyId(companyId);
+
+		Criterion criterion = model.getAttributeCriterion("groupId", groupId);
+
+		if (!relatedData) {
+			return queryHelper.getLiferayData(model, criterion);
+		}
+
+		return queryHelper.getLiferayDataWithRelatedData(
+			queryCache, model, criterion);
+	}
+
+	private long companyId = -1;
+	private long groupId = -1;
+	private Model model = null;
+	private Map<String, Map<Long, List<Data>>> queryCache = null;
+	private StagingCheckerQueryHelper queryHelper = null;
+	private boolean relatedData = true;
+
+}
\ No newline at end of file
@@ -0,0 +1,285 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package jorgediazest.stagingchecker.portlet;
+
+import com.liferay.portal.kernel.log.Log;
+import com.liferay.portal.kernel.log.LogFactoryUtil;
+import com.liferay.portal.kernel.model.Company;
+import com.liferay.portal.kernel.security.auth.CompanyThreadLocal;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+import jorgediazest.stagingchecker.ExecutionMode;
+import jorgediazest.stagingchecker.executor.CheckExecutor;
+import jorgediazest.stagingchecker.executor.CheckExecutorUtil;
+import jorgediazest.stagingchecker.output.CheckProgress;
+import jorgediazest.stagingchecker.util.PortletPropsValues;
+
+import jorgediazest.util.data.Comparison;
+
+/**
+ * Check of all companies launched by a user. It is executed inside the
+ * action request or as a background task, and it keeps the report so it can
+ * be rendered once the check has finished.
+ *
+ * @author Jorge Díaz
+ */
+public class CheckTask implements Runnable {
+
+	public CheckTask(
+		StagingCheckerPortlet portlet, List<String> classNames,
+		String[] filterGroupIdArr, Date startModifiedDate,
+		Date endModifiedDate, EnumSet<ExecutionMode> executionMode,
+		int numberOfThreads, CheckProgress checkProgress) {
+
+		this.portlet = portlet;
+		this.classNames = classNames;
+		this.filterGroupIdArr = filterGroupIdArr;
+		this.startModifiedDate = startModifiedDate;
+		this.endModifiedDate = endModifiedDate;
+		this.executionMode = executionMode;
+		this.numberOfThreads = numberOfThreads;
+		this.checkProgress = checkProgress;
+	}
+
+	public CheckProgress getCheckProgress() {
+		return checkProgress;
+	}
+
+	public Map<Company, String> getCompanyError() {
+		return companyError;
+	}
+
+	public Map<Company, Long> getCompanyProcessTime() {
+		return companyProcessTime;
+	}
+
+	public Map<Company, Map<Long, List<Comparison>>>
+		getCompanyResultDataMap() {
+
+		return companyResultDataMap;
+	}
+
+	public EnumSet<ExecutionMode> getExecutionMode() {
+		return executionMode;
+	}
+
+	public boolean isFinished() {
+		return checkProgress.isFinished();
+	}
+
+	@Override
+	public void run() {
+		long previousCompanyId = CompanyThreadLocal.getCompanyId();
+
+		try {
+			List<Company> companies = portlet.getCompanyList();
+
+			if (PortletPropsValues.COMPANIES_PARALLEL_ENABLED &&
+				(companies.size() > 1)) {
+
+				executeCheckParallel(companies);
+
+				return;
+			}
+
+			for (Company company : companies) {
+				if (checkProgress.isCancelled()) {
+					break;
+				}
+
+				executeCheck(company, null);
+			}
+		}
+		catch (Throwable t) {
+			_log.error(t, t);
+		}
+		finally {
+			CompanyThreadLocal.setCompanyId(previousCompanyId);
+
+			checkProgress.setFinished(true);
+		}
+	}
+
+	/**
+	 * Checks a company. If <code>executor</code> is <code>null</code>, the
+	 * company gets its own share of the shared check pool.
+	 */
+	protected void executeCheck(Company company, CheckExecutor executor) {
+		try {
+			CompanyThreadLocal.setCompanyId(company.getCompanyId());
+
+			List<Long> groupIds = portlet.getGroupIds(
+				company, filterGroupIdArr);
+
+			long startTime = System.currentTimeMillis();
+
+			Map<Long, List<Comparison>> resultDataMap;
+
+			if (executor == null) {
+				resultDataMap = StagingCheckerPortlet.executeCheck(
+					company, groupIds, classNames, startModifiedDate,
+					endModifiedDate, executionMode, numberOfThreads,
+					checkProgress);
+			}
+			else {
+				resultDataMap = StagingCheckerPortlet.executeCheck(
+					executor, company, groupIds, classNames, startModifiedDate,
+					endModifiedDate, executionMode, checkProgress);
+			}
+
+			long endTime = System.currentTimeMillis();
+
+			if (_log.isInfoEnabled() &&
+				executionMode.contains(
+						ExecutionMode.DUMP_ALL_OBJECTS_TO_LOG)) {
+
+				synchronized (this) {
+					_log.info("COMPANY: " + company);
+
+					StagingCheckerPortlet.dumpToLog(true, resultDataMap);
+				}
+			}
+
+			synchronized (this) {
+				companyResultDataMap.put(company, resultDataMap);
+
+				companyProcessTime.put(company, (endTime - startTime));
+			}
+		}
+		catch (Throwable t) {
+			StringWriter swt = new StringWriter();
+			PrintWriter pwt = new PrintWriter(swt);
+			pwt.println("Error during execution: " + t.getMessage());
+			t.printStackTrace(pwt);
+
+			synchronized (this) {
+				companyError.put(company, swt.toString());
+			}
+
+			_log.error(t, t);
+		}
+	}
+
+	/**
+	 * Checks all companies at the same time. They share one execution of the
+	 * shared check pool, so their group/model tasks are interleaved and the
+	 * total concurrency is the same as checking a single company.
+	 */
+	protected void executeCheckParallel(List<Company> companies)
+		throws Exception {
+
+		final CheckExecutor executor = CheckExecutorUtil.newCheckExecutor(
+			numberOfThreads);
+
+		checkProgress.setCheckExecutor(executor);
+
+		try {
+			List<Future<?>> futures = new ArrayList<Future<?>>();
+
+			for (final Company company : companies) {
+				Runnable runnable = new Runnable() {
+
+					@Override
+					public void run() {
+						long previousCompanyId =
+							CompanyThreadLocal.getCompanyId();
+
+						try {
+							executeCheck(company, executor);
+						}
+						finally {
+							CompanyThreadLocal.setCompanyId(previousCompanyId);
+						}
+					}
+
+				};
+
+				futures.add(CheckExecutorUtil.submitCompanyCheck(runnable));
+			}
+
+			for (Future<?> future : futures) {
+				CheckExecutorUtil.getResult(future);
+			}
+		}
+		finally {
+			checkProgress.setCheckExecutor(null);
+
+			executor.shutdown();
+		}
+
+		sortByCompany(companies);
+	}
+
+	/**
+	 * Sorts the report in the order of the company list, as companies
+	 * checked in parallel finish in any order.
+	 */
+	protected synchronized void sortByCompany(List<Company> companies) {
+		Map<Company, String> sortedCompanyError =
+			new LinkedHashMap<Company, String>();
+		Map<Company, Long> sortedCompanyProcessTime =
+			new LinkedHashMap<Company, Long>();
+		Map<Company, Map<Long, List<Comparison>>> sortedCompanyResultDataMap =
+			new LinkedHashMap<Company, Map<Long, List<Comparison>>>();
+
+		for (Company company : companies) {
+			if (companyError.containsKey(company)) {
+				sortedCompanyError.put(company, companyError.get(company));
+			}
+
+			if (companyProcessTime.containsKey(company)) {
+				sortedCompanyProcessTime.put(
+					company, companyProcessTime.get(company));
+			}
+
+			if (companyResultDataMap.containsKey(company)) {
+				sortedCompanyResultDataMap.put(
+					company, companyResultDataMap.get(company));
+			}
+		}
+
+		companyError = sortedCompanyError;
+		companyProcessTime = sortedCompanyProcessTime;
+		companyResultDataMap = sortedCompanyResultDataMap;
+	}
+
+	private static Log _log = LogFactoryUtil.getLog(CheckTask.class);
+
+	private CheckProgress checkProgress = null;
+	private List<String> classNames = null;
+	private Map<Company, String> companyError =
+		new LinkedHashMap<Company, String>();
+	private Map<Company, Long> companyProcessTime =
+		new LinkedHashMap<Company, Long>();
+	private Map<Company, Map<Long, List<Comparison>>> companyResultDataMap =
+		new LinkedHashMap<Company, Map<Long, List<Comparison>>>();
+	private Date endModifiedDate = null;
+	private EnumSet<ExecutionMode> executionMode = null;
+	private String[] filterGroupIdArr = null;
+	private int numberOfThreads;
+	private StagingCheckerPortlet portlet = null;
+	private Date startModifiedDate = null;
+
+}
\ No newline at end of file
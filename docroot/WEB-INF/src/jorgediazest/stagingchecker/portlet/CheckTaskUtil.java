@@ -0,0 +1,66 @@
+/**
+ * Copyright (c) 2015-present Jorge Díaz All rights reserved.
+ *
+ * This library is free software; you can redistribute it and/or modify it under
+ * the terms of the GNU Lesser General Public License as published by the Free
+ * Software Foundation; either version 2.1 of the License, or (at your option)
+ * any later version.
+ *
+ * This library is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or FITNESS
+ * FOR A PARTICULAR PURPOSE. See the GNU Lesser General Public License for more
+ * details.
+ */
+
+package jorgediazest.stagingchecker.portlet;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import jorgediazest.stagingchecker.executor.CheckExecutorUtil;
+import jorgediazest.stagingchecker.output.CheckProgressUtil;
+
+/**
+ * Keeps the last background check launched by each user, so its progress and
+ * its report can be retrieved by later requests.
+ *
+ * @author Jorge Díaz
+ */
+public class CheckTaskUtil {
+
+	public static CheckTask getCheckTask(long userId) {
+		return checkTaskMap.get(userId);
+	}
+
+	public static CheckTask removeCheckTask(long userId) {
+		return checkTaskMap.remove(userId);
+	}
+
+	/**
+	 * Enqueues the check task of the user and sets its progress as the
+	 * progress of the user. Returns <code>false</code> if the user already has
+	 * a check task that has not finished yet, which keeps its progress.
+	 */
+	public static synchronized boolean submitCheckTask(
+		long userId, CheckTask checkTask) {
+
+		CheckTask previousCheckTask = checkTaskMap.get(userId);
+
+		if ((previousCheckTask != null) && !previousCheckTask.isFinished()) {
+			return false;
+		}
+
+		checkTaskMap.put(userId, checkTask);
+
+		CheckProgressUtil.setCheckProgress(
+			userId, checkTask.getCheckProgress());
+
+		CheckExecutorUtil.submitTask(checkTask);
+
+		return true;
+	}
+
+	private static Map<Long, CheckTask> checkTaskMap =
+		new ConcurrentHashMap<Long, CheckTask>();
+
+}
\ No newline at end of file
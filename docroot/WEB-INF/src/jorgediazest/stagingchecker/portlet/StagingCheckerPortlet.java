@@ -22,6 +22,7 @@ import com.liferay.portal.kernel.dao.orm.QueryUtil;
 import com.liferay.portal.kernel.dao.orm.RestrictionsFactoryUtil;
 import com.liferay.portal.kernel.deploy.DeployManagerUtil;
 import com.liferay.portal.kernel.exception.SystemException;
+import com.liferay.portal.kernel.json.JSONObject;
 import com.liferay.portal.kernel.log.Log;
 import com.liferay.portal.kernel.log.LogFactoryUtil;
 import com.liferay.portal.kernel.model.Company;
@@ -32,11 +33,14 @@ import com.liferay.portal.kernel.plugin.PluginPackage;
 import com.liferay.portal.kernel.portlet.LiferayPortletContext;
 import com.liferay.portal.kernel.portlet.bridges.mvc.MVCPortlet;
 import com.liferay.portal.kernel.repository.model.FileEntry;
-import com.liferay.portal.kernel.security.auth.CompanyThreadLocal;
+import com.liferay.portal.kernel.security.auth.AuthTokenUtil;
+import com.liferay.portal.kernel.security.auth.PrincipalException;
 import com.liferay.portal.kernel.service.ClassNameLocalServiceUtil;
 import com.liferay.portal.kernel.service.GroupLocalServiceUtil;
+import com.liferay.portal.kernel.servlet.SessionErrors;
 import com.liferay.portal.kernel.util.CalendarFactory;
 import com.liferay.portal.kernel.util.CalendarFactoryUtil;
+import com.liferay.portal.kernel.util.ContentTypes;
 import com.liferay.portal.kernel.util.GetterUtil;
 import com.liferay.portal.kernel.util.JavaConstants;
 import com.liferay.portal.kernel.util.ParamUtil;
@@ -48,7 +52,6 @@ import com.liferay.portal.kernel.util.Validator;
 
 import java.io.IOException;
 import java.io.PrintWriter;
-import java.io.StringWriter;
 
 import java.util.ArrayList;
 import java.util.Calendar;
@@ -56,15 +59,13 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 
 import javax.portlet.ActionRequest;
@@ -73,6 +74,7 @@ import javax.portlet.PortletConfig;
 import javax.portlet.PortletContext;
 import javax.portlet.PortletException;
 import javax.portlet.PortletPreferences;
+import javax.portlet.PortletRequest;
 import javax.portlet.RenderRequest;
 import javax.portlet.RenderResponse;
 import javax.portlet.ResourceRequest;
@@ -80,9 +82,19 @@ import javax.portlet.ResourceResponse;
 import javax.portlet.ResourceURL;
 
 import jorgediazest.stagingchecker.ExecutionMode;
+import jorgediazest.stagingchecker.executor.CheckCompletionService;
+import jorgediazest.stagingchecker.executor.CheckExecutor;
+import jorgediazest.stagingchecker.executor.CheckExecutorUtil;
+import jorgediazest.stagingchecker.model.StagingCheckerCostUtil;
+import jorgediazest.stagingchecker.model.StagingCheckerGroupSnapshot;
 import jorgediazest.stagingchecker.model.StagingCheckerModelFactory;
+import jorgediazest.stagingchecker.model.StagingCheckerQueryCache;
+import jorgediazest.stagingchecker.model.StagingCheckerValueDictionary;
+import jorgediazest.stagingchecker.output.CheckProgress;
+import jorgediazest.stagingchecker.output.CheckProgressUtil;
 import jorgediazest.stagingchecker.output.StagingCheckerOutput;
 import jorgediazest.stagingchecker.util.ConfigurationUtil;
+import jorgediazest.stagingchecker.util.PortletPropsValues;
 import jorgediazest.stagingchecker.util.RemoteConfigurationUtil;
 
 import jorgediazest.util.data.Comparison;
@@ -141,6 +153,46 @@ public class StagingCheckerPortlet extends MVCPortlet {
 		Set<ExecutionMode> executionMode, int threadsExecutor)
 	throws Exception {
 
+		return executeCheck(
+			company, groupIds, classNames, startModifiedDate, endModifiedDate,
+			executionMode, threadsExecutor, new CheckProgress());
+	}
+
+	public static Map<Long, List<Comparison>> executeCheck(
+		Company company, List<Long> groupIds, List<String> classNames,
+		Date startModifiedDate, Date endModifiedDate,
+		Set<ExecutionMode> executionMode, int threadsExecutor,
+		CheckProgress checkProgress)
+	throws Exception {
+
+		CheckExecutor executor = CheckExecutorUtil.newCheckExecutor(
+			threadsExecutor);
+
+		checkProgress.setCheckExecutor(executor);
+
+		try {
+			return executeCheck(
+				executor, company, groupIds, classNames, startModifiedDate,
+				endModifiedDate, executionMode, checkProgress);
+		}
+		finally {
+			checkProgress.setCheckExecutor(null);
+
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Checks a company using an executor that can be shared with the checks
+	 * of other companies running at the same time. The executor is not shut
+	 * down.
+	 */
+	public static Map<Long, List<Comparison>> executeCheck(
+		CheckExecutor executor, Company company, List<Long> groupIds,
+		List<String> classNames, Date startModifiedDate, Date endModifiedDate,
+		Set<ExecutionMode> executionMode, CheckProgress checkProgress)
+	throws Exception {
+
 		StagingCheckerModelFactory mf = new StagingCheckerModelFactory(
 			0L, startModifiedDate, endModifiedDate);
 
@@ -164,57 +216,46 @@ public class StagingCheckerPortlet extends MVCPortlet {
 
 		long companyId = company.getCompanyId();
 
-		Map<String, Map<Long, List<Data>>> queryCache =
-			new ConcurrentHashMap<String, Map<Long, List<Data>>>();
+		StagingCheckerValueDictionary valueDictionary = null;
 
-		ExecutorService executor = Executors.newFixedThreadPool(
-			threadsExecutor);
+		if (PortletPropsValues.DATA_DICTIONARY_ENABLED) {
+			valueDictionary = new StagingCheckerValueDictionary(
+				PortletPropsValues.DATA_DICTIONARY_MAX_ENTRIES);
+		}
 
-		Map<Long, List<Future<Comparison>>> futureResultDataMap =
-			new TreeMap<Long, List<Future<Comparison>>>();
+		StagingCheckerQueryCache queryCache = new StagingCheckerQueryCache(
+			PortletPropsValues.QUERY_CACHE_MAX_SIZE * 1024 * 1024,
+			valueDictionary);
 
-		for (long groupId : groupIds) {
-			List<Future<Comparison>> futureResultList =
-				new ArrayList<Future<Comparison>>();
+		StagingCheckerGroupSnapshot groupSnapshot =
+			StagingCheckerGroupSnapshot.build(mf, groupIds, modelList);
 
-			for (Model model : modelList) {
-				if (!isStagingActive(mf, model, groupId)) {
-					continue;
-				}
-
-				CallableCheckGroupAndModel c =
-					new CallableCheckGroupAndModel(
-						queryCache, companyId, groupId, model, executionMode);
+		checkProgress.addGroupSnapshot(companyId, groupSnapshot);
 
-				futureResultList.add(executor.submit(c));
+		try {
+			if (PortletPropsValues.BATCH_ENABLED) {
+				return executeCheckBatch(
+					executor, queryCache, groupSnapshot, companyId, groupIds,
+					modelList, executionMode, checkProgress);
 			}
 
-			futureResultDataMap.put(groupId, futureResultList);
+			return executeCheck(
+				executor, queryCache, groupSnapshot, companyId, groupIds,
+				modelList, executionMode, checkProgress);
 		}
-
-		Map<Long, List<Comparison>> resultDataMap =
-			new TreeMap<Long, List<Comparison>>();
-
-		for (
-			Entry<Long, List<Future<Comparison>>> entry :
-				futureResultDataMap.entrySet()) {
-
-			List<Comparison> resultList = new ArrayList<Comparison>();
-
-			for (Future<Comparison> f : entry.getValue()) {
-				Comparison results = f.get();
-
-				if (results != null) {
-					resultList.add(results);
-				}
+		finally {
+			if (_log.isInfoEnabled()) {
+				_log.info(
+					"Query cache of company " + companyId + ": " +
+						queryCache);
 			}
 
-			resultDataMap.put(entry.getKey(), resultList);
+			if ((valueDictionary != null) && _log.isInfoEnabled()) {
+				_log.info(
+					"Value dictionary of company " + companyId + ": " +
+						valueDictionary);
+			}
 		}
-
-		executor.shutdownNow();
-
-		return resultDataMap;
 	}
 
 	public static EnumSet<ExecutionMode>
@@ -264,31 +305,26 @@ public class StagingCheckerPortlet extends MVCPortlet {
 		return DeployManagerUtil.getInstalledPluginPackage(portletContextName);
 	}
 
-	public static boolean isStagingActive(
-			StagingCheckerModelFactory mf, Model model, long groupId)
-		throws SystemException {
-
-		Group group = GroupLocalServiceUtil.fetchGroup(groupId);
-
-		Set<Portlet> portlets = mf.getPortletSet(model.getClassName());
+	public void cleanCheckTask(ActionRequest request, ActionResponse response)
+		throws Exception {
 
-		if (portlets.isEmpty()) {
-			return false;
-		}
+		long userId = PortalUtil.getUserId(request);
 
-		Portlet portlet = portlets.toArray(new Portlet[1])[0];
+		CheckTask checkTask = CheckTaskUtil.getCheckTask(userId);
 
-		if (!group.isStagedPortlet(portlet.getPortletId())) {
-			if (_log.isDebugEnabled()) {
-				_log.debug(
-					model.getName() + " is not staged for group " +
-						groupId);
-			}
+		if ((checkTask != null) && checkTask.isFinished()) {
+			CheckTaskUtil.removeCheckTask(userId);
 
-			return false;
+			CheckProgressUtil.removeCheckProgress(
+				userId, checkTask.getCheckProgress());
 		}
+	}
 
-		return true;
+	@Override
+	public void destroy() {
+		CheckExecutorUtil.shutdown();
+
+		super.destroy();
 	}
 
 	public void doView(
@@ -303,11 +339,28 @@ public class StagingCheckerPortlet extends MVCPortlet {
 
 		renderRequest.setAttribute("updateMessage", updateMessage);
 
+		long userId = PortalUtil.getUserId(renderRequest);
+
+		if (PortletPropsValues.BACKGROUND_TASK_ENABLED &&
+			(renderRequest.getAttribute("companyResultDataMap") == null)) {
+
+			CheckTask checkTask = CheckTaskUtil.getCheckTask(userId);
+
+			if ((checkTask != null) && checkTask.isFinished()) {
+				setCheckTaskAttributes(renderRequest, checkTask);
+
+				CheckProgressUtil.removeCheckProgress(
+					userId, checkTask.getCheckProgress());
+			}
+			else if (checkTask != null) {
+				renderRequest.setAttribute("checkTaskRunning", Boolean.TRUE);
+			}
+		}
+
 		List<String> outputList = StagingCheckerOutput.generateCSVOutput(
 			portletConfig, renderRequest);
 
 		String portletId = portletConfig.getPortletName();
-		long userId = PortalUtil.getUserId(renderRequest);
 		String outputContent = OutputUtils.listStringToString(outputList);
 
 		FileEntry exportCsvFileEntry = OutputUtils.addPortletOutputFileEntry(
@@ -389,59 +442,33 @@ public class StagingCheckerPortlet extends MVCPortlet {
 			endModifiedDate = getTomorrowDate(now);
 		}
 
-		Map<Company, Map<Long, List<Comparison>>> companyResultDataMap =
-			new LinkedHashMap<Company, Map<Long, List<Comparison>>>();
-
-		Map<Company, Long> companyProcessTime =
-			new LinkedHashMap<Company, Long>();
-
-		Map<Company, String> companyError =
-			new LinkedHashMap<Company, String>();
-
-		for (Company company : getCompanyList()) {
-			try {
-				CompanyThreadLocal.setCompanyId(company.getCompanyId());
-
-				List<Long> groupIds = getGroupIds(company, filterGroupIdArr);
-
-				long startTime = System.currentTimeMillis();
+		long userId = PortalUtil.getUserId(request);
 
-				Map<Long, List<Comparison>> resultDataMap =
-					StagingCheckerPortlet.executeCheck(
-						company, groupIds, classNames, startModifiedDate,
-						endModifiedDate, executionMode,
-						getNumberOfThreads(request));
+		CheckProgress checkProgress = new CheckProgress();
 
-				long endTime = System.currentTimeMillis();
+		CheckTask checkTask = new CheckTask(
+			this, classNames, filterGroupIdArr, startModifiedDate,
+			endModifiedDate, executionMode, getNumberOfThreads(request),
+			checkProgress);
 
-				if (_log.isInfoEnabled() &&
-					executionMode.contains(
-							ExecutionMode.DUMP_ALL_OBJECTS_TO_LOG)) {
-
-					_log.info("COMPANY: " + company);
+		if (PortletPropsValues.BACKGROUND_TASK_ENABLED) {
+			if (!CheckTaskUtil.submitCheckTask(userId, checkTask)) {
+				SessionErrors.add(request, "check-task-running");
+			}
 
-					dumpToLog(true, resultDataMap);
-				}
+			return;
+		}
 
-				companyResultDataMap.put(company, resultDataMap);
+		CheckProgressUtil.setCheckProgress(userId, checkProgress);
 
-				companyProcessTime.put(company, (endTime - startTime));
-			}
-			catch (Throwable t) {
-				StringWriter swt = new StringWriter();
-				PrintWriter pwt = new PrintWriter(swt);
-				pwt.println("Error during execution: " + t.getMessage());
-				t.printStackTrace(pwt);
-				companyError.put(company, swt.toString());
-				_log.error(t, t);
-			}
+		try {
+			checkTask.run();
+		}
+		finally {
+			CheckProgressUtil.removeCheckProgress(userId, checkProgress);
 		}
 
-		request.setAttribute("title", "Check Staging");
-		request.setAttribute("executionMode", executionMode);
-		request.setAttribute("companyProcessTime", companyProcessTime);
-		request.setAttribute("companyResultDataMap", companyResultDataMap);
-		request.setAttribute("companyError", companyError);
+		setCheckTaskAttributes(request, checkTask);
 	}
 
 	public List<String> getClassNames() throws SystemException {
@@ -639,6 +666,261 @@ public class StagingCheckerPortlet extends MVCPortlet {
 		}
 	}
 
+	protected static void addResults(
+		CheckProgress checkProgress, long companyId,
+		Map<Long, Comparison> results) {
+
+		for (Entry<Long, Comparison> entry : results.entrySet()) {
+			checkProgress.addResult(
+				companyId, entry.getKey(), entry.getValue());
+		}
+	}
+
+	protected static Map<Long, List<Comparison>> executeCheck(
+			CheckExecutor executor,
+			Map<String, Map<Long, List<Data>>> queryCache,
+			StagingCheckerGroupSnapshot groupSnapshot, long companyId,
+			List<Long> groupIds, List<Model> modelList,
+			Set<ExecutionMode> executionMode, CheckProgress checkProgress)
+		throws Exception {
+
+		Map<Long, List<CallableCheckGroupAndModel>> groupCallableMap =
+			new TreeMap<Long, List<CallableCheckGroupAndModel>>();
+
+		List<CallableCheckGroupAndModel> callableList =
+			new ArrayList<CallableCheckGroupAndModel>();
+
+		for (long groupId : groupIds) {
+			List<CallableCheckGroupAndModel> groupCallableList =
+				new ArrayList<CallableCheckGroupAndModel>();
+
+			for (Model model : modelList) {
+				if (!groupSnapshot.isStagingActive(model, groupId)) {
+					continue;
+				}
+
+				CallableCheckGroupAndModel c =
+					new CallableCheckGroupAndModel(
+						queryCache, companyId, groupId,
+						groupSnapshot.getStagingGroupId(groupId), model,
+						executionMode);
+
+				groupCallableList.add(c);
+				callableList.add(c);
+			}
+
+			groupCallableMap.put(groupId, groupCallableList);
+		}
+
+		if (PortletPropsValues.SCHEDULING_LONGEST_FIRST_ENABLED) {
+			sortByCost(
+				callableList, companyId,
+				groupSnapshot.getStagingGroupIds(groupIds));
+		}
+
+		CheckCompletionService<Comparison> completionService =
+			new CheckCompletionService<Comparison>(executor);
+
+		Map<CallableCheckGroupAndModel, Future<Comparison>> callableFutureMap =
+			new HashMap<CallableCheckGroupAndModel, Future<Comparison>>();
+
+		Map<Future<Comparison>, Long> futureGroupIdMap =
+			new HashMap<Future<Comparison>, Long>();
+
+		Map<Future<Comparison>, Comparison> futureResultMap =
+			new HashMap<Future<Comparison>, Comparison>();
+
+		for (CallableCheckGroupAndModel c : callableList) {
+			Future<Comparison> future = completionService.submit(c);
+
+			checkProgress.addSubmittedTasks(1);
+
+			callableFutureMap.put(c, future);
+			futureGroupIdMap.put(future, c.getGroupId());
+
+			Future<Comparison> completedFuture;
+
+			while ((completedFuture = completionService.poll()) != null) {
+				Comparison results = completedFuture.get();
+
+				futureResultMap.put(completedFuture, results);
+
+				checkProgress.addResult(
+					companyId, futureGroupIdMap.get(completedFuture),
+					results);
+			}
+		}
+
+		while (futureResultMap.size() < futureGroupIdMap.size()) {
+			Future<Comparison> completedFuture = completionService.take();
+
+			Comparison results = completedFuture.get();
+
+			futureResultMap.put(completedFuture, results);
+
+			checkProgress.addResult(
+				companyId, futureGroupIdMap.get(completedFuture), results);
+		}
+
+		Map<Long, List<Comparison>> resultDataMap =
+			new TreeMap<Long, List<Comparison>>();
+
+		for (
+			Entry<Long, List<CallableCheckGroupAndModel>> entry :
+				groupCallableMap.entrySet()) {
+
+			List<Comparison> resultList = new ArrayList<Comparison>();
+
+			for (CallableCheckGroupAndModel c : entry.getValue()) {
+				Comparison results = futureResultMap.get(
+					callableFutureMap.get(c));
+
+				if (results != null) {
+					resultList.add(results);
+				}
+			}
+
+			resultDataMap.put(entry.getKey(), resultList);
+		}
+
+		return resultDataMap;
+	}
+
+	protected static Map<Long, List<Comparison>> executeCheckBatch(
+			CheckExecutor executor,
+			Map<String, Map<Long, List<Data>>> queryCache,
+			StagingCheckerGroupSnapshot groupSnapshot, long companyId,
+			List<Long> groupIds, List<Model> modelList,
+			Set<ExecutionMode> executionMode, CheckProgress checkProgress)
+		throws Exception {
+
+		Map<Long, Long> stagingGroupIds = groupSnapshot.getStagingGroupIds(
+			groupIds);
+
+		int chunkSize = Math.max(1, PortletPropsValues.BATCH_GROUPS_CHUNK_SIZE);
+
+		CheckCompletionService<Map<Long, Comparison>> completionService =
+			new CheckCompletionService<Map<Long, Comparison>>(executor);
+
+		List<CallableCheckGroupListAndModel> callableList =
+			new ArrayList<CallableCheckGroupListAndModel>();
+
+		Map<CallableCheckGroupListAndModel, Long> costMap =
+			new HashMap<CallableCheckGroupListAndModel, Long>();
+
+		for (Model model : modelList) {
+			Map<Long, Long> modelStagingGroupIds =
+				new LinkedHashMap<Long, Long>();
+
+			for (Entry<Long, Long> entry : stagingGroupIds.entrySet()) {
+				if (groupSnapshot.isStagingActive(model, entry.getKey())) {
+					modelStagingGroupIds.put(entry.getKey(), entry.getValue());
+				}
+			}
+
+			List<Entry<Long, Long>> entries = new ArrayList<Entry<Long, Long>>(
+				modelStagingGroupIds.entrySet());
+
+			Map<Long, Long> costs = Collections.emptyMap();
+
+			if (PortletPropsValues.SCHEDULING_LONGEST_FIRST_ENABLED) {
+				costs = StagingCheckerCostUtil.getCosts(
+					model, companyId, modelStagingGroupIds);
+
+				Map<Entry<Long, Long>, Long> entryCostMap =
+					new HashMap<Entry<Long, Long>, Long>();
+
+				for (Entry<Long, Long> entry : entries) {
+					entryCostMap.put(entry, costs.get(entry.getKey()));
+				}
+
+				StagingCheckerCostUtil.sortByCost(entries, entryCostMap);
+			}
+
+			for (int i = 0; i < entries.size(); i += chunkSize) {
+				Map<Long, Long> chunk = new LinkedHashMap<Long, Long>();
+
+				long chunkCost = 0;
+
+				for (Entry<Long, Long> entry :
+						entries.subList(
+							i, Math.min(entries.size(), i + chunkSize))) {
+
+					chunk.put(entry.getKey(), entry.getValue());
+
+					Long cost = costs.get(entry.getKey());
+
+					if (cost != null) {
+						chunkCost += cost;
+					}
+				}
+
+				CallableCheckGroupListAndModel c =
+					new CallableCheckGroupListAndModel(
+						queryCache, companyId, chunk, model, executionMode);
+
+				callableList.add(c);
+				costMap.put(c, chunkCost);
+			}
+		}
+
+		if (PortletPropsValues.SCHEDULING_LONGEST_FIRST_ENABLED) {
+			StagingCheckerCostUtil.sortByCost(callableList, costMap);
+		}
+
+		List<Future<Map<Long, Comparison>>> futureResultList =
+			new ArrayList<Future<Map<Long, Comparison>>>();
+
+		Map<Future<Map<Long, Comparison>>, Map<Long, Comparison>>
+			futureResultMap =
+				new HashMap
+					<Future<Map<Long, Comparison>>, Map<Long, Comparison>>();
+
+		for (CallableCheckGroupListAndModel c : callableList) {
+			futureResultList.add(completionService.submit(c));
+
+			checkProgress.addSubmittedTasks(c.getStagingGroupIds().size());
+
+			Future<Map<Long, Comparison>> completedFuture;
+
+			while ((completedFuture = completionService.poll()) != null) {
+				Map<Long, Comparison> results = completedFuture.get();
+
+				futureResultMap.put(completedFuture, results);
+
+				addResults(checkProgress, companyId, results);
+			}
+		}
+
+		while (futureResultMap.size() < futureResultList.size()) {
+			Future<Map<Long, Comparison>> completedFuture =
+				completionService.take();
+
+			Map<Long, Comparison> results = completedFuture.get();
+
+			futureResultMap.put(completedFuture, results);
+
+			addResults(checkProgress, companyId, results);
+		}
+
+		Map<Long, List<Comparison>> resultDataMap =
+			new TreeMap<Long, List<Comparison>>();
+
+		for (long groupId : groupIds) {
+			resultDataMap.put(groupId, new ArrayList<Comparison>());
+		}
+
+		for (Future<Map<Long, Comparison>> f : futureResultList) {
+			for (Entry<Long, Comparison> entry :
+					futureResultMap.get(f).entrySet()) {
+
+				resultDataMap.get(entry.getKey()).add(entry.getValue());
+			}
+		}
+
+		return resultDataMap;
+	}
+
 	protected static boolean isLps74956Unsolved() {
 
 		for (String installedPatch : PatcherUtil.getInstalledPatches()) {
@@ -675,6 +957,44 @@ public class StagingCheckerPortlet extends MVCPortlet {
 		return true;
 	}
 
+	protected static void sortByCost(
+		List<CallableCheckGroupAndModel> callableList, long companyId,
+		Map<Long, Long> stagingGroupIds) {
+
+		Map<Model, List<CallableCheckGroupAndModel>> modelCallableMap =
+			new LinkedHashMap<Model, List<CallableCheckGroupAndModel>>();
+
+		for (CallableCheckGroupAndModel c : callableList) {
+			List<CallableCheckGroupAndModel> modelCallableList =
+				modelCallableMap.get(c.getModel());
+
+			if (modelCallableList == null) {
+				modelCallableList = new ArrayList<CallableCheckGroupAndModel>();
+
+				modelCallableMap.put(c.getModel(), modelCallableList);
+			}
+
+			modelCallableList.add(c);
+		}
+
+		Map<CallableCheckGroupAndModel, Long> costMap =
+			new HashMap<CallableCheckGroupAndModel, Long>();
+
+		for (
+			Entry<Model, List<CallableCheckGroupAndModel>> entry :
+				modelCallableMap.entrySet()) {
+
+			Map<Long, Long> costs = StagingCheckerCostUtil.getCosts(
+				entry.getKey(), companyId, stagingGroupIds);
+
+			for (CallableCheckGroupAndModel c : entry.getValue()) {
+				costMap.put(c, costs.get(c.getGroupId()));
+			}
+		}
+
+		StagingCheckerCostUtil.sortByCost(callableList, costMap);
+	}
+
 	public String getUpdateMessage(PortletConfig portletConfig) {
 
 		/* Due to LPS-74956, pluginPackage.getVersion() returns a wrong value */
@@ -744,12 +1064,65 @@ public class StagingCheckerPortlet extends MVCPortlet {
 				JavaConstants.JAVAX_PORTLET_CONFIG);
 
 		String resourceId = request.getResourceID();
+
+		if ("cancelCheck".equals(resourceId) ||
+			"checkProgress".equals(resourceId)) {
+
+			CheckProgress checkProgress = CheckProgressUtil.getCheckProgress(
+				PortalUtil.getUserId(request));
+
+			if ("cancelCheck".equals(resourceId)) {
+				checkCancelCheckRequest(request);
+
+				if (checkProgress != null) {
+					checkProgress.cancel();
+				}
+			}
+
+			JSONObject jsonObject = StagingCheckerOutput.generateProgressJSON(
+				portletConfig, request.getLocale(), checkProgress,
+				ParamUtil.getInteger(request, "start"));
+
+			response.setContentType(ContentTypes.APPLICATION_JSON);
+
+			PrintWriter writer = response.getWriter();
+
+			writer.write(jsonObject.toString());
+
+			writer.flush();
+
+			return;
+		}
+
 		String portletId = portletConfig.getPortletName();
 
 		OutputUtils.servePortletFileEntry(
 			portletId, resourceId, request, response);
 	}
 
+	/**
+	 * Validates that the request to cancel a check is a POST request with a
+	 * valid authentication token, as it changes the state of the check.
+	 */
+	protected void checkCancelCheckRequest(ResourceRequest request)
+		throws PortletException {
+
+		if (!"POST".equals(request.getMethod())) {
+			throw new PortletException(
+				"Cancelling a check requires a POST request");
+		}
+
+		try {
+			AuthTokenUtil.checkCSRFToken(
+				PortalUtil.getOriginalServletRequest(
+					PortalUtil.getHttpServletRequest(request)),
+				StagingCheckerPortlet.class.getName());
+		}
+		catch (PrincipalException pe) {
+			throw new PortletException(pe);
+		}
+	}
+
 	protected Date getStartDate(long timeInMillis, long hoursToSubstract) {
 		CalendarFactory calendarFactory =
 			CalendarFactoryUtil.getCalendarFactory();
@@ -775,6 +1148,21 @@ public class StagingCheckerPortlet extends MVCPortlet {
 		return tomorrowCalendar.getTime();
 	}
 
+	protected void setCheckTaskAttributes(
+		PortletRequest request, CheckTask checkTask) {
+
+		request.setAttribute("title", "Check Staging");
+		request.setAttribute("executionMode", checkTask.getExecutionMode());
+		request.setAttribute(
+			"companyProcessTime", checkTask.getCompanyProcessTime());
+		request.setAttribute(
+			"companyResultDataMap", checkTask.getCompanyResultDataMap());
+		request.setAttribute("companyError", checkTask.getCompanyError());
+		request.setAttribute(
+			"groupSnapshots",
+			checkTask.getCheckProgress().getGroupSnapshots());
+	}
+
 	private static Log _log = LogFactoryUtil.getLog(
 		StagingCheckerPortlet.class);
 
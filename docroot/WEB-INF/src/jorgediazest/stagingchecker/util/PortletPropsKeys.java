@@ -19,6 +19,105 @@ package jorgediazest.stagingchecker.util;
  */
 public interface PortletPropsKeys {
 
+	public static final String BACKGROUND_TASK_ENABLED =
+		"background.task.enabled";
+
+	public static final String BACKGROUND_TASK_THREADS =
+		"background.task.threads";
+
+	public static final String BATCH_ENABLED = "batch.enabled";
+
+	public static final String BATCH_GROUPS_CHUNK_SIZE =
+		"batch.groups.chunk.size";
+
+	public static final String CHECK_RUN_TIMEOUT = "check.run.timeout";
+
+	public static final String CHECK_TASK_TIMEOUT = "check.task.timeout";
+
+	public static final String COMPANIES_PARALLEL_ENABLED =
+		"companies.parallel.enabled";
+
+	public static final String COMPANIES_PARALLEL_THREADS =
+		"companies.parallel.threads";
+
+	public static final String COMPARISON_AGGREGATE_ENABLED =
+		"comparison.aggregate.enabled";
+
+	public static final String COMPARISON_FINGERPRINT_ENABLED =
+		"comparison.fingerprint.enabled";
+
+	public static final String COMPARISON_MERKLE_BUCKETS =
+		"comparison.merkle.buckets";
+
+	public static final String COMPARISON_MERKLE_ENABLED =
+		"comparison.merkle.enabled";
+
+	public static final String COMPARISON_SORT_MERGE_ENABLED =
+		"comparison.sort.merge.enabled";
+
+	public static final String DATA_COLUMNAR_ENABLED =
+		"data.columnar.enabled";
+
+	public static final String DATA_DICTIONARY_ENABLED =
+		"data.dictionary.enabled";
+
+	public static final String DATA_DICTIONARY_MAX_ENTRIES =
+		"data.dictionary.max.entries";
+
+	public static final String EXECUTOR_ADAPTIVE_BACKOFF_RATIO =
+		"executor.adaptive.backoff.ratio";
+
+	public static final String EXECUTOR_ADAPTIVE_ENABLED =
+		"executor.adaptive.enabled";
+
+	public static final String EXECUTOR_ADAPTIVE_MIN_CONCURRENCY =
+		"executor.adaptive.min.concurrency";
+
+	public static final String EXECUTOR_ADAPTIVE_TARGET_LATENCY =
+		"executor.adaptive.target.latency";
+
+	public static final String EXECUTOR_QUEUE_SIZE = "executor.queue.size";
+
+	public static final String EXECUTOR_THREADS = "executor.threads";
+
+	public static final String EXECUTOR_VIRTUAL_THREADS_ENABLED =
+		"executor.virtual.threads.enabled";
+
+	public static final String EXECUTOR_VIRTUAL_THREADS_MAX_CONNECTIONS =
+		"executor.virtual.threads.max.connections";
+
+	public static final String FETCH_PAGE_SIZE = "fetch.page.size";
+
+	public static final String FETCH_PAGINATION_ENABLED =
+		"fetch.pagination.enabled";
+
 	public static final String NUMBER_THREADS = "number.threads";
 
+	public static final String PARALLEL_FETCH_ENABLED =
+		"parallel.fetch.enabled";
+
+	public static final String PARALLEL_FETCH_THREADS =
+		"parallel.fetch.threads";
+
+	public static final String QUERY_CACHE_MAX_SIZE = "query.cache.max.size";
+
+	public static final String RELATED_LOOKUP_ENABLED =
+		"related.lookup.enabled";
+
+	public static final String RELATED_LOOKUP_MAX_RATIO =
+		"related.lookup.max.ratio";
+
+	public static final String RELATED_PAIRED_ENABLED =
+		"related.paired.enabled";
+
+	public static final String SCHEDULING_COUNT_ENABLED =
+		"scheduling.count.enabled";
+
+	public static final String SCHEDULING_LONGEST_FIRST_ENABLED =
+		"scheduling.longest.first.enabled";
+
+	public static final String SPILL_DIRECTORY = "spill.directory";
+
+	public static final String SPILL_THRESHOLD_SIZE = "spill.threshold.size";
+
 }
\ No newline at end of file
@@ -22,8 +22,161 @@ import com.liferay.util.portlet.PortletProps;
  */
 public class PortletPropsValues {
 
+	public static final boolean BACKGROUND_TASK_ENABLED =
+		GetterUtil.getBoolean(
+			PortletProps.get(PortletPropsKeys.BACKGROUND_TASK_ENABLED));
+
+	public static final int BACKGROUND_TASK_THREADS =
+		GetterUtil.getInteger(
+			PortletProps.get(PortletPropsKeys.BACKGROUND_TASK_THREADS), 1);
+
+	public static final boolean BATCH_ENABLED =
+		GetterUtil.getBoolean(
+			PortletProps.get(PortletPropsKeys.BATCH_ENABLED));
+
+	public static final int BATCH_GROUPS_CHUNK_SIZE =
+		GetterUtil.getInteger(
+			PortletProps.get(PortletPropsKeys.BATCH_GROUPS_CHUNK_SIZE), 50);
+
+	public static final int CHECK_RUN_TIMEOUT =
+		GetterUtil.getInteger(
+			PortletProps.get(PortletPropsKeys.CHECK_RUN_TIMEOUT));
+
+	public static final int CHECK_TASK_TIMEOUT =
+		GetterUtil.getInteger(
+			PortletProps.get(PortletPropsKeys.CHECK_TASK_TIMEOUT));
+
+	public static final boolean COMPANIES_PARALLEL_ENABLED =
+		GetterUtil.getBoolean(
+			PortletProps.get(PortletPropsKeys.COMPANIES_PARALLEL_ENABLED));
+
+	public static final int COMPANIES_PARALLEL_THREADS =
+		GetterUtil.getInteger(
+			PortletProps.get(PortletPropsKeys.COMPANIES_PARALLEL_THREADS), 4);
+
+	public static final boolean COMPARISON_AGGREGATE_ENABLED =
+		GetterUtil.getBoolean(
+			PortletProps.get(PortletPropsKeys.COMPARISON_AGGREGATE_ENABLED));
+
+	public static final boolean COMPARISON_FINGERPRINT_ENABLED =
+		GetterUtil.getBoolean(
+			PortletProps.get(PortletPropsKeys.COMPARISON_FINGERPRINT_ENABLED));
+
+	public static final int COMPARISON_MERKLE_BUCKETS =
+		GetterUtil.getInteger(
+			PortletProps.get(PortletPropsKeys.COMPARISON_MERKLE_BUCKETS),
+			4096);
+
+	public static final boolean COMPARISON_MERKLE_ENABLED =
+		GetterUtil.getBoolean(
+			PortletProps.get(PortletPropsKeys.COMPARISON_MERKLE_ENABLED));
+
+	public static final boolean COMPARISON_SORT_MERGE_ENABLED =
+		GetterUtil.getBoolean(
+			PortletProps.get(PortletPropsKeys.COMPARISON_SORT_MERGE_ENABLED));
+
+	public static final boolean DATA_COLUMNAR_ENABLED =
+		GetterUtil.getBoolean(
+			PortletProps.get(PortletPropsKeys.DATA_COLUMNAR_ENABLED));
+
+	public static final boolean DATA_DICTIONARY_ENABLED =
+		GetterUtil.getBoolean(
+			PortletProps.get(PortletPropsKeys.DATA_DICTIONARY_ENABLED));
+
+	public static final int DATA_DICTIONARY_MAX_ENTRIES =
+		GetterUtil.getInteger(
+			PortletProps.get(PortletPropsKeys.DATA_DICTIONARY_MAX_ENTRIES),
+			1000000);
+
+	public static final double EXECUTOR_ADAPTIVE_BACKOFF_RATIO =
+		GetterUtil.getDouble(
+			PortletProps.get(PortletPropsKeys.EXECUTOR_ADAPTIVE_BACKOFF_RATIO),
+			0.5);
+
+	public static final boolean EXECUTOR_ADAPTIVE_ENABLED =
+		GetterUtil.getBoolean(
+			PortletProps.get(PortletPropsKeys.EXECUTOR_ADAPTIVE_ENABLED));
+
+	public static final int EXECUTOR_ADAPTIVE_MIN_CONCURRENCY =
+		GetterUtil.getInteger(
+			PortletProps.get(
+				PortletPropsKeys.EXECUTOR_ADAPTIVE_MIN_CONCURRENCY), 1);
+
+	public static final long EXECUTOR_ADAPTIVE_TARGET_LATENCY =
+		GetterUtil.getLong(
+			PortletProps.get(PortletPropsKeys.EXECUTOR_ADAPTIVE_TARGET_LATENCY),
+			1000L);
+
+	public static final int EXECUTOR_QUEUE_SIZE =
+		GetterUtil.getInteger(
+			PortletProps.get(PortletPropsKeys.EXECUTOR_QUEUE_SIZE), 100);
+
+	public static final int EXECUTOR_THREADS =
+		GetterUtil.getInteger(
+			PortletProps.get(PortletPropsKeys.EXECUTOR_THREADS), 4);
+
+	public static final boolean EXECUTOR_VIRTUAL_THREADS_ENABLED =
+		GetterUtil.getBoolean(
+			PortletProps.get(
+				PortletPropsKeys.EXECUTOR_VIRTUAL_THREADS_ENABLED));
+
+	public static final int EXECUTOR_VIRTUAL_THREADS_MAX_CONNECTIONS =
+		GetterUtil.getInteger(
+			PortletProps.get(
+				PortletPropsKeys.EXECUTOR_VIRTUAL_THREADS_MAX_CONNECTIONS),
+			10);
+
+	public static final int FETCH_PAGE_SIZE =
+		GetterUtil.getInteger(
+			PortletProps.get(PortletPropsKeys.FETCH_PAGE_SIZE), 1000);
+
+	public static final boolean FETCH_PAGINATION_ENABLED =
+		GetterUtil.getBoolean(
+			PortletProps.get(PortletPropsKeys.FETCH_PAGINATION_ENABLED));
+
 	public static final int NUMBER_THREADS =
 		GetterUtil.getInteger(
 			PortletProps.get(PortletPropsKeys.NUMBER_THREADS), 1);
 
+	public static final boolean PARALLEL_FETCH_ENABLED =
+		GetterUtil.getBoolean(
+			PortletProps.get(PortletPropsKeys.PARALLEL_FETCH_ENABLED));
+
+	public static final int PARALLEL_FETCH_THREADS =
+		GetterUtil.getInteger(
+			PortletProps.get(PortletPropsKeys.PARALLEL_FETCH_THREADS), 2);
+
+	public static final long QUERY_CACHE_MAX_SIZE =
+		GetterUtil.getLong(
+			PortletProps.get(PortletPropsKeys.QUERY_CACHE_MAX_SIZE));
+
+	public static final boolean RELATED_LOOKUP_ENABLED =
+		GetterUtil.getBoolean(
+			PortletProps.get(PortletPropsKeys.RELATED_LOOKUP_ENABLED));
+
+	public static final double RELATED_LOOKUP_MAX_RATIO =
+		GetterUtil.getDouble(
+			PortletProps.get(PortletPropsKeys.RELATED_LOOKUP_MAX_RATIO), 0.1);
+
+	public static final boolean RELATED_PAIRED_ENABLED =
+		GetterUtil.getBoolean(
+			PortletProps.get(PortletPropsKeys.RELATED_PAIRED_ENABLED));
+
+	public static final boolean SCHEDULING_COUNT_ENABLED =
+		GetterUtil.getBoolean(
+			PortletProps.get(PortletPropsKeys.SCHEDULING_COUNT_ENABLED), true);
+
+	public static final boolean SCHEDULING_LONGEST_FIRST_ENABLED =
+		GetterUtil.getBoolean(
+			PortletProps.get(
+				PortletPropsKeys.SCHEDULING_LONGEST_FIRST_ENABLED));
+
+	public static final String SPILL_DIRECTORY =
+		GetterUtil.getString(
+			PortletProps.get(PortletPropsKeys.SPILL_DIRECTORY));
+
+	public static final long SPILL_THRESHOLD_SIZE =
+		GetterUtil.getLong(
+			PortletProps.get(PortletPropsKeys.SPILL_THRESHOLD_SIZE));
+
 }
\ No newline at end of file
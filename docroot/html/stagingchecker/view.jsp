@@ -36,6 +36,7 @@
 <%@ page import="com.liferay.portal.kernel.model.Company" %>
 <%@ page import="com.liferay.portal.kernel.theme.PortletDisplay" %>
 <%@ page import="com.liferay.portal.kernel.theme.ThemeDisplay" %>
+<%@ page import="com.liferay.portal.kernel.util.GetterUtil" %>
 <%@ page import="com.liferay.portal.kernel.util.Validator" %>
 <%@ page import="com.liferay.portal.kernel.util.WebKeys" %>
 
@@ -50,6 +51,7 @@
 <%@ page import="javax.portlet.PortletURL" %>
 
 <%@ page import="jorgediazest.stagingchecker.ExecutionMode" %>
+<%@ page import="jorgediazest.stagingchecker.model.StagingCheckerGroupSnapshot" %>
 <%@ page import="jorgediazest.stagingchecker.output.StagingCheckerOutput" %>
 <%@ page import="jorgediazest.stagingchecker.portlet.StagingCheckerPortlet" %>
 
@@ -70,6 +72,12 @@
 
 <portlet:actionURL name="executeCheck" var="executeCheckURL" windowState="normal" />
 
+<portlet:actionURL name="cleanCheckTask" var="cleanCheckTaskURL" windowState="normal" />
+
+<portlet:resourceURL id="cancelCheck" var="cancelCheckURL" />
+
+<portlet:resourceURL id="checkProgress" var="checkProgressURL" />
+
 <script type="text/javascript">
 	function showHide(shID) {
 		if (document.getElementById(shID)) {
@@ -83,6 +91,74 @@
 			}
 		}
 	}
+
+	function <portlet:namespace />pollCheckProgress(start, reloadURL) {
+		var xhr = new XMLHttpRequest();
+
+		xhr.open('GET', '<%= checkProgressURL %>&<portlet:namespace />start=' + start);
+
+		xhr.onload = function() {
+			if (xhr.status != 200) {
+				return;
+			}
+
+			var progress = JSON.parse(xhr.responseText);
+
+			var next = start;
+
+			if (progress.results) {
+				var table = document.getElementById('<portlet:namespace />checkProgressResults');
+
+				for (var i = 0; i < progress.results.length; i++) {
+					var result = progress.results[i];
+
+					var row = table.insertRow(-1);
+
+					row.insertCell(-1).textContent = result.groupName;
+					row.insertCell(-1).textContent = result.entityName;
+					row.insertCell(-1).textContent = result.status;
+					row.insertCell(-1).textContent = result.error ? result.error : result.count;
+				}
+
+				next = progress.next;
+
+				var status = progress.completedTasks + '/' + progress.submittedTasks;
+
+				if (progress.concurrency) {
+					status += ' - <liferay-ui:message key="concurrency-limit" />: ' + progress.concurrency.limit + '/' + progress.concurrency.maxLimit + ', <liferay-ui:message key="average-query-latency" />: ' + progress.concurrency.averageLatency + ' ms (max ' + progress.concurrency.maxLatency + ' ms, ' + progress.concurrency.samples + ' queries)';
+				}
+
+				document.getElementById('<portlet:namespace />checkProgressStatus').textContent = status;
+			}
+
+			if (progress.finished && reloadURL) {
+				window.location.href = reloadURL;
+			}
+			else if (!progress.finished || (next == start)) {
+				setTimeout(function() {<portlet:namespace />pollCheckProgress(next, reloadURL);}, 2000);
+			}
+		};
+
+		xhr.send();
+	}
+
+	function <portlet:namespace />cancelCheck() {
+		var xhr = new XMLHttpRequest();
+
+		xhr.open('POST', '<%= cancelCheckURL %>');
+
+		xhr.setRequestHeader('Content-Type', 'application/x-www-form-urlencoded');
+
+		xhr.send('p_auth=' + encodeURIComponent(Liferay.authToken));
+
+		document.getElementById('<portlet:namespace />cancelCheckButton').disabled = true;
+	}
+
+	function <portlet:namespace />startCheckProgress(reloadURL) {
+		document.getElementById('<portlet:namespace />checkProgress').style.display = 'block';
+
+		setTimeout(function() {<portlet:namespace />pollCheckProgress(0, reloadURL);}, 1000);
+	}
 </script>
 
 <div class="container-fluid-1280"><div class="card-horizontal main-content-card"><div class="panel-body">
@@ -93,6 +169,7 @@
 	Map<Company, Long> companyProcessTime = (Map<Company, Long>) request.getAttribute("companyProcessTime");
 	Map<Company, Map<Long, List<Comparison>>> companyResultDataMap = (Map<Company, Map<Long, List<Comparison>>>) request.getAttribute("companyResultDataMap");
 	Map<Company, String> companyError = (Map<Company, String>) request.getAttribute("companyError");
+	Map<Long, StagingCheckerGroupSnapshot> groupSnapshots = (Map<Long, StagingCheckerGroupSnapshot>) request.getAttribute("groupSnapshots");
 	List<Model> modelList = (List<Model>) request.getAttribute("modelList");
 	Set<String> filterClassNameSelected = (Set<String>) request.getAttribute("filterClassNameSelected");
 	if (filterClassNameSelected == null) {
@@ -118,7 +195,9 @@
 	}
 %>
 
-<aui:form action="<%= executeCheckURL %>" method="POST" name="fm">
+<liferay-ui:error key="check-task-running" message="check-task-running" />
+
+<aui:form action="<%= executeCheckURL %>" method="POST" name="fm" onSubmit='<%= renderResponse.getNamespace() + "startCheckProgress();" %>'>
 	<aui:row>
 		<aui:col width="33">
 			<aui:input helpMessage="output-both-exact-help" name="outputBothExact" type="checkbox" value="false" />
@@ -231,12 +310,26 @@ if (filterGroupIdSelected.isEmpty() || filterGroupIdSelected.contains("-1000"))
 	}
 %>
 
-		<aui:button onClick="<%= viewURL %>" value="clean" />
+		<aui:button onClick="<%= cleanCheckTaskURL %>" value="clean" />
 		<aui:button onClick="<%= configurationURL %>" value="configuration" />
 
 	</aui:button-row>
 </aui:form>
 
+<div id="<portlet:namespace />checkProgress" style="display: none;">
+	<b><liferay-ui:message key="check-progress" /></b>: <span id="<portlet:namespace />checkProgressStatus"></span>
+
+	<button class="btn btn-default" id="<portlet:namespace />cancelCheckButton" onClick="<portlet:namespace />cancelCheck(); return false;" type="button"><liferay-ui:message key="cancel-check" /></button>
+
+	<table class="table table-condensed" id="<portlet:namespace />checkProgressResults"></table>
+</div>
+
+<c:if test='<%= GetterUtil.getBoolean(request.getAttribute("checkTaskRunning")) %>'>
+	<aui:script>
+		<portlet:namespace />startCheckProgress('<%= viewURL %>');
+	</aui:script>
+</c:if>
+
 <%
 	if ((companyProcessTime != null) && (companyError != null)) {
 %>
@@ -255,9 +348,15 @@ if (filterGroupIdSelected.isEmpty() || filterGroupIdSelected.contains("-1000"))
 				Map<Long, List<Comparison>> resultDataMap =
 					companyResultDataMap.get(companyEntry.getKey());
 
+				StagingCheckerGroupSnapshot groupSnapshot = null;
+
+				if (groupSnapshots != null) {
+					groupSnapshot = groupSnapshots.get(companyEntry.getKey().getCompanyId());
+				}
+
 				PortletURL serverURL = renderResponse.createRenderURL();
 
-				SearchContainer searchContainer = StagingCheckerOutput.generateSearchContainer(portletConfig, renderRequest, true, resultDataMap, serverURL);
+				SearchContainer searchContainer = StagingCheckerOutput.generateSearchContainer(portletConfig, renderRequest, true, resultDataMap, serverURL, groupSnapshot);
 
 				if (searchContainer.getTotal() > 0) {
 				%>